@@ -0,0 +1,99 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность шифрования и расшифровки номеров карт в {@link CardNumberEncryptor}.
+ * Методы с суффиксом perCall повторяют прежнюю реализацию, создававшую ключ и Cipher на каждый вызов.
+ * Бенчмарки page* расшифровывают и маскируют страницу из 100 карт, как при выдаче списка карт.
+ * Для оценки аллокаций запускать с {@code -Djmh.args="-prof gc CardNumberEncryptor"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardNumberEncryptorBenchmark {
+
+    private static final String SECRET = "MySecretKey69420";
+    private static final int PAGE_SIZE = 100;
+
+    private CardNumberEncryptor encryptor;
+    private String cardNumber;
+    private String encrypted;
+    private String[] page;
+
+    @Setup
+    public void setup() {
+        encryptor = new CardNumberEncryptor(SECRET, new SimpleMeterRegistry());
+        cardNumber = "4000123412341234";
+        encrypted = encryptor.encrypt(cardNumber);
+
+        page = new String[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page[i] = encryptor.encrypt(String.format("4000%012d", i));
+        }
+    }
+
+    @Benchmark
+    public String encryptPerCall() throws Exception {
+        Cipher cipher = newCipher(Cipher.ENCRYPT_MODE);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(cardNumber.getBytes()));
+    }
+
+    @Benchmark
+    public String encryptPooled() {
+        return encryptor.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String decryptPerCall() throws Exception {
+        return decryptPerCall(encrypted);
+    }
+
+    @Benchmark
+    public String decryptPooled() {
+        return encryptor.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void pagePerCall(Blackhole blackhole) throws Exception {
+        for (String value : page) {
+            blackhole.consume(mask(decryptPerCall(value)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void pagePooled(Blackhole blackhole) {
+        for (String value : page) {
+            blackhole.consume(mask(encryptor.decrypt(value)));
+        }
+    }
+
+    private static String decryptPerCall(String value) throws Exception {
+        Cipher cipher = newCipher(Cipher.DECRYPT_MODE);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(value)));
+    }
+
+    private static Cipher newCipher(int mode) throws Exception {
+        SecretKeySpec key = new SecretKeySpec(SECRET.getBytes(), "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(mode, key);
+        return cipher;
+    }
+
+    private static String mask(String number) {
+        return "**** **** **** " + number.substring(number.length() - 4);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.PrincipalSource;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.service.ClientDetailsService;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link JWTFilter#doFilterInternal} для запроса с валидным Bearer-токеном.
+ * Параметр cacheEnabled сравнивает полную проверку подписи на каждый запрос с кэшем проверенных токенов.
+ * Загрузка пользователя заменена заглушкой, чтобы измерялась только работа с токеном.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cacheEnabled;
+
+    private JWTFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setup() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("bench@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        ClientDetails details = new ClientDetails(user);
+
+        JwtUtil jwtUtil = new JwtUtil("SECRET", cacheEnabled, 10_000, Duration.ofMinutes(5));
+        ClientDetailsService clientDetailsService = new ClientDetailsService(null, null) {
+            @Override
+            public ClientDetails loadAuthenticatedUser(String email) {
+                return details;
+            }
+        };
+        filter = new JWTFilter(jwtUtil, clientDetailsService, new TokenVersionRegistry(null),
+                PrincipalSource.DATABASE);
+
+        request = new MockHttpServletRequest("GET", "/cards");
+        request.setServletPath("/cards");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(user.getEmail()));
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> {
+        };
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws Exception {
+        filter.doFilterInternal(request, response, chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
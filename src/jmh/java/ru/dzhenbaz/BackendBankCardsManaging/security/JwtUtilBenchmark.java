@@ -0,0 +1,60 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import org.openjdk.jmh.annotations.*;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выпуска и проверки JWT-токенов в {@link JwtUtil}: подпись токена только с email
+ * и токена с идентификатором, ролью и версией пользователя, а также проверка токена с claims:
+ * с проверкой подписи при каждом вызове и с кэшем проверенных токенов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private JwtUtil cachingJwtUtil;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        user = new User();
+        user.setId(1L);
+        user.setEmail("bench@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+
+        jwtUtil = new JwtUtil("SECRET", false, 10_000, Duration.ofMinutes(5));
+        cachingJwtUtil = new JwtUtil("SECRET", true, 10_000, Duration.ofMinutes(5));
+        token = jwtUtil.generateToken(user, 0);
+    }
+
+    @Benchmark
+    public String signEmail() {
+        return jwtUtil.generateToken(user.getEmail());
+    }
+
+    @Benchmark
+    public String signWithClaims() {
+        return jwtUtil.generateToken(user, 0);
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken verify() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken verifyCached() {
+        return cachingJwtUtil.validateToken(token);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHasher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость генерации номера новой карты в {@link CardNumberGenerator#generate()}:
+ * случайные 16 цифр и слепой индекс номера для проверки уникальности.
+ * Репозиторий заменён заглушкой, для которой все номера свободны, поэтому запрос к базе данных не измеряется.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardNumberGenerationBenchmark {
+
+    private CardNumberGenerator generator;
+
+    @Setup
+    public void setup() {
+        // Заглушка вызывается в каждой итерации, поэтому вызовы не записываются
+        CardRepository cardRepository = Mockito.mock(CardRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(cardRepository.existsByCardNumberHash(ArgumentMatchers.anyString())).thenReturn(false);
+        generator = new CardNumberGenerator(cardRepository, new CardNumberHasher("BenchmarkHashKey"));
+    }
+
+    @Benchmark
+    public String generateCardNumber() {
+        return generator.generate();
+    }
+}
@@ -0,0 +1,132 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.UserResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionDirection;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Стоимость преобразования страницы из 100 сущностей в DTO ответа.
+ * Параметр mapper сравнивает прежний рефлексивный {@link ModelMapper} с прямым вызовом конструкторов DTO
+ * в {@link CardService#mapToCardDto}, {@link TransactionService#mapToDto} и UserController.
+ * Время и выделенная память приводятся на одну сущность; память выводится профилировщиком gc:
+ * {@code -Djmh.args="DtoMapping -prof gc"} (метрика gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"modelMapper", "constructor"})
+    public String mapper;
+
+    private List<Card> cards;
+    private List<Transaction> transactions;
+    private List<User> users;
+
+    private Function<Card, CardResponseDto> cardMapper;
+    private Function<Transaction, TransactionResponseDto> transactionMapper;
+    private Function<User, UserResponseDto> userMapper;
+
+    @Setup
+    public void setup() {
+        User owner = user(1);
+        cards = new ArrayList<>();
+        transactions = new ArrayList<>();
+        users = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Card card = new Card();
+            card.setId((long) i);
+            card.setOwner(owner);
+            card.setCardNumber(String.format("4000%012d", i));
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.valueOf(1000 + i));
+            cards.add(card);
+
+            Transaction tx = new Transaction();
+            tx.setId((long) i);
+            tx.setCard(card);
+            tx.setType(TransactionType.WITHDRAW);
+            tx.setDirection(TransactionDirection.DEBIT);
+            tx.setAmount(BigDecimal.valueOf(i + 1));
+            tx.setTimestamp(LocalDateTime.now());
+            tx.setDescription("Benchmark");
+            transactions.add(tx);
+
+            users.add(user(i));
+        }
+
+        if ("modelMapper".equals(mapper)) {
+            ModelMapper modelMapper = new ModelMapper();
+            modelMapper.typeMap(Transaction.class, TransactionResponseDto.class)
+                    .addMappings(mapping -> mapping.skip(TransactionResponseDto::setCardNumber));
+            cardMapper = card -> {
+                CardResponseDto dto = modelMapper.map(card, CardResponseDto.class);
+                dto.setMaskedCardNumber("**** **** **** " + card.getLast4());
+                dto.setOwnerId(card.getOwner().getId());
+                return dto;
+            };
+            transactionMapper = tx -> {
+                TransactionResponseDto dto = modelMapper.map(tx, TransactionResponseDto.class);
+                dto.setCardNumber("**** **** **** " + tx.getCard().getLast4());
+                return dto;
+            };
+            userMapper = user -> modelMapper.map(user, UserResponseDto.class);
+        } else {
+            // Зависимости сервисов не используются при преобразовании
+            cardMapper = new CardService(null, null, null, null, null)::mapToCardDto;
+            transactionMapper = new TransactionService(null, null, null, null, null, null, new SimpleMeterRegistry())::mapToDto;
+            userMapper = user -> new UserResponseDto(user.getId(), user.getEmail(), user.getRole());
+        }
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setId((long) i);
+        user.setEmail("bench" + i + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        return user;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public List<CardResponseDto> cards() {
+        return cards.stream().map(cardMapper).toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public List<TransactionResponseDto> transactions() {
+        return transactions.stream().map(transactionMapper).toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public List<UserResponseDto> users() {
+        return users.stream().map(userMapper).toList();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardDailyUsage;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRuleRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.LimitRulesRevision;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки лимитов снятия в памяти: определение действующих лимитов карты
+ * и проверка всех окон за один проход по дневным агрегатам за 30 дней.
+ * Параметр rules сравнивает один общий дневной лимит с десятью правилами разных периодов и областей действия.
+ * Репозитории заменены заглушками и вызываются только при подготовке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimitEvaluationBenchmark {
+
+    private static final Long CARD_ID = 10L;
+    private static final Long USER_ID = 1L;
+
+    @Param({"1", "10"})
+    public int rules;
+
+    private LimitRegistry registry;
+    private List<CardDailyUsage> usage;
+    private LocalDate today;
+    private BigDecimal amount;
+
+    @Setup
+    public void setup() {
+        List<LimitRule> ruleList = new ArrayList<>();
+        if (rules > 1) {
+            // Общий дневной лимит задан отдельно, поэтому здесь 9 правил
+            ruleList.add(rule(LimitPeriod.WEEKLY, null, null, 3_000_000));
+            ruleList.add(rule(LimitPeriod.MONTHLY, null, null, 9_000_000));
+            ruleList.add(rule(LimitPeriod.TRANSACTION, null, null, 500_000));
+            ruleList.add(rule(LimitPeriod.DAILY, null, USER_ID, 800_000));
+            ruleList.add(rule(LimitPeriod.WEEKLY, null, USER_ID, 2_000_000));
+            ruleList.add(rule(LimitPeriod.MONTHLY, null, USER_ID, 6_000_000));
+            ruleList.add(rule(LimitPeriod.DAILY, CARD_ID, null, 700_000));
+            ruleList.add(rule(LimitPeriod.WEEKLY, CARD_ID, null, 1_500_000));
+            ruleList.add(rule(LimitPeriod.TRANSACTION, CARD_ID, null, 400_000));
+        }
+
+        LimitRepository limitRepository = Mockito.mock(LimitRepository.class);
+        Mockito.when(limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT))
+                .thenReturn(new Limit(LimitRegistry.DAILY_LIMIT, BigDecimal.valueOf(1_000_000)));
+        LimitRuleRepository limitRuleRepository = Mockito.mock(LimitRuleRepository.class);
+        LimitRulesRevision revision = Mockito.mock(LimitRulesRevision.class);
+        Mockito.when(revision.getCount()).thenReturn((long) ruleList.size());
+        Mockito.when(revision.getLastUpdatedAt()).thenReturn(LocalDateTime.now());
+        Mockito.when(limitRuleRepository.findRevision()).thenReturn(revision);
+        Mockito.when(limitRuleRepository.findAll()).thenReturn(ruleList);
+
+        registry = new LimitRegistry(limitRepository, limitRuleRepository);
+        registry.refresh();
+
+        today = LocalDate.now();
+        usage = new ArrayList<>();
+        for (int day = 0; day < LimitPeriod.MONTHLY.getDays(); day++) {
+            CardDailyUsage row = new CardDailyUsage();
+            row.setCardId(CARD_ID);
+            row.setUsageDate(today.minusDays(day));
+            row.setWithdrawn(BigDecimal.valueOf(10_000));
+            row.setTransferred(BigDecimal.ZERO);
+            usage.add(row);
+        }
+        amount = BigDecimal.valueOf(5_000);
+    }
+
+    @Benchmark
+    public LimitUsage evaluate() {
+        LimitProfile profile = registry.profileFor(CARD_ID, USER_ID, TransactionType.WITHDRAW);
+        profile.checkAmount(amount);
+        LimitUsage totals = LimitUsage.of(usage, TransactionType.WITHDRAW, today);
+        profile.checkUsage(totals);
+        return totals;
+    }
+
+    private static LimitRule rule(LimitPeriod period, Long cardId, Long userId, long maxAmount) {
+        return new LimitRule(TransactionType.WITHDRAW, period, cardId, userId, BigDecimal.valueOf(maxAmount));
+    }
+}
@@ -0,0 +1,69 @@
+package ru.dzhenbaz.BackendBankCardsManaging.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * Счётчик SQL-запросов, подготовленных Hibernate в текущем потоке.
+ * Регистрируется в Hibernate как {@link StatementInspector}; если в настройках уже задан другой инспектор,
+ * запросы передаются ему. Подсчёт ведётся только между вызовами {@link #start()} и {@link #stop()}.
+ */
+@Component
+public class StatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private StatementInspector delegate;
+
+    /**
+     * Регистрирует счётчик в настройках Hibernate.
+     *
+     * @param hibernateProperties настройки Hibernate
+     */
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Object configured = hibernateProperties.get(AvailableSettings.STATEMENT_INSPECTOR);
+        if (configured instanceof StatementInspector inspector) {
+            delegate = inspector;
+        } else if (configured != null) {
+            Class<?> type = configured instanceof Class<?> c
+                    ? c
+                    : ClassUtils.resolveClassName(configured.toString(), getClass().getClassLoader());
+            delegate = (StatementInspector) BeanUtils.instantiateClass(type);
+        }
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return delegate != null ? delegate.inspect(sql) : sql;
+    }
+
+    /**
+     * Начинает подсчёт запросов в текущем потоке.
+     */
+    public void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Завершает подсчёт запросов в текущем потоке.
+     *
+     * @return количество запросов с момента вызова {@link #start()}
+     */
+    public int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.dzhenbaz.BackendBankCardsManaging.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Фильтр, публикующий количество SQL-запросов на HTTP-запрос в метрике {@code http.server.requests.db.statements}
+ * с тегами method и uri (шаблон пути эндпоинта), с процентилями p50/p99.
+ * Учитываются запросы всей обработки, включая аутентификацию; запросы, выполняемые в других потоках
+ * (например, при потоковой выгрузке транзакций), не учитываются.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final StatementCounter statementCounter;
+    private final Meter.MeterProvider<DistributionSummary> statements;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param statementCounter счётчик SQL-запросов
+     * @param meterRegistry    реестр метрик
+     */
+    @Autowired
+    public StatementMetricsFilter(StatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.statements = DistributionSummary.builder("http.server.requests.db.statements")
+                .description("Количество SQL-запросов на HTTP-запрос")
+                .publishPercentiles(0.5, 0.99)
+                .withRegistry(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int count = statementCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statements.withTags(Tags.of("method", request.getMethod(),
+                            "uri", pattern != null ? pattern.toString() : UNKNOWN_URI))
+                    .record(count);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,8 +11,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardCountResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.CardCreateRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardLookupRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.CardResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardSliceResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.CardStatusUpdateRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
@@ -33,7 +35,7 @@ public class CardController {
     private final AuthService authService;
 
     @Autowired
-    public CardController(CardService cardService, AuthService authService, ModelMapper modelMapper) {
+    public CardController(CardService cardService, AuthService authService) {
         this.cardService = cardService;
         this.authService = authService;
     }
@@ -70,6 +72,41 @@ public class CardController {
         return ResponseEntity.ok(cardService.getAllCards(currentUser, status, pageable));
     }
 
+    /**
+     * Получает страницу карт без общего количества элементов и страниц.
+     * Не выполняет запрос COUNT, поэтому подходит для бесконечной прокрутки.
+     *
+     * @param status фильтрация по статусу карты (опционально)
+     * @param page   номер страницы
+     * @param size   размер страницы
+     * @return страница карт с признаком наличия следующей страницы
+     */
+    @Operation(summary = "Получить список карт без подсчёта общего количества")
+    @GetMapping("/slice")
+    public ResponseEntity<CardSliceResponseDto> getSlice(
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        User currentUser = authService.getCurrentUser();
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(cardService.getCardsSlice(currentUser, status, pageable));
+    }
+
+    /**
+     * Получает приблизительное количество карт (только для администратора).
+     *
+     * @param status фильтрация по статусу карты (опционально)
+     * @return количество карт и время подсчёта
+     */
+    @Operation(summary = "Получить приблизительное количество карт (только администратор)")
+    @GetMapping("/count")
+    public ResponseEntity<CardCountResponseDto> getApproximateCount(
+            @RequestParam(required = false) CardStatus status
+    ) {
+        return ResponseEntity.ok(cardService.getApproximateCardCount(status));
+    }
+
 
     /**
      * Получает карту по её идентификатору.
@@ -92,6 +129,21 @@ public class CardController {
         }
     }
 
+    /**
+     * Находит карту по полному номеру (только для администратора).
+     * Номер передаётся в теле запроса, чтобы не попадать в URL и журналы доступа.
+     *
+     * @param request запрос с номером карты
+     * @return карта или HTTP 404
+     */
+    @Operation(summary = "Найти карту по номеру (только администратор)")
+    @PostMapping("/lookup")
+    public ResponseEntity<CardResponseDto> lookup(@RequestBody @Valid CardLookupRequestDto request) {
+        return cardService.getByCardNumber(request.getCardNumber())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Удаляет карту по её идентификатору (только для администратора).
      *
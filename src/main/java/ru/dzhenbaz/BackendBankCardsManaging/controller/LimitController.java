@@ -6,17 +6,23 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.EffectiveLimitResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitRuleRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitRuleResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitUpdateRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.service.LimitService;
 
+import java.util.List;
+
 /**
- * Контроллер для управления дневными лимитами операций по картам.
- * Позволяет получать текущий лимит и изменять его.
+ * Контроллер для управления лимитами операций по картам.
+ * Позволяет получать и изменять общий дневной лимит, управлять правилами лимитов
+ * и просматривать лимиты, действующие для карты.
  */
 @RestController
 @RequestMapping("/limits")
-@Tag(name = "3. Лимиты", description = "Управление дневным лимитом на операции по картам")
+@Tag(name = "3. Лимиты", description = "Управление лимитами на операции по картам")
 public class LimitController {
 
     private final LimitService limitService;
@@ -49,4 +55,61 @@ public class LimitController {
     ResponseEntity<LimitResponseDto> changeDailyLimit(@RequestBody @Valid LimitUpdateRequestDto request) {
         return ResponseEntity.ok(limitService.updateDailyLimit(request.getNewValue()));
     }
+
+    /**
+     * Получает правила лимитов.
+     * Доступно только администраторам.
+     *
+     * @param cardId фильтр по карте (опционально)
+     * @param userId фильтр по пользователю (опционально)
+     * @return список правил
+     */
+    @Operation(summary = "Получить правила лимитов (только администратор)")
+    @GetMapping("/rules")
+    public ResponseEntity<List<LimitRuleResponseDto>> getRules(
+            @RequestParam(required = false) Long cardId,
+            @RequestParam(required = false) Long userId
+    ) {
+        return ResponseEntity.ok(limitService.getRules(cardId, userId));
+    }
+
+    /**
+     * Создаёт правило лимита или изменяет существующее правило с теми же параметрами.
+     * Доступно только администраторам.
+     *
+     * @param request параметры правила
+     * @return сохранённое правило
+     */
+    @Operation(summary = "Создать или изменить правило лимита (только администратор)",
+            description = "Правило карты переопределяет правило пользователя, а оно — общее правило того же периода")
+    @PostMapping("/rules")
+    public ResponseEntity<LimitRuleResponseDto> saveRule(@RequestBody @Valid LimitRuleRequestDto request) {
+        return ResponseEntity.ok(limitService.saveRule(request));
+    }
+
+    /**
+     * Удаляет правило лимита.
+     * Доступно только администраторам.
+     *
+     * @param id идентификатор правила
+     * @return пустой ответ
+     */
+    @Operation(summary = "Удалить правило лимита (только администратор)")
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        limitService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Получает лимиты, действующие для карты.
+     *
+     * @param cardId идентификатор карты
+     * @return действующие лимиты
+     */
+    @Operation(summary = "Получить лимиты, действующие для карты")
+    @GetMapping("/cards/{cardId}")
+    public ResponseEntity<List<EffectiveLimitResponseDto>> getEffectiveLimits(@PathVariable Long cardId) {
+        return ResponseEntity.ok(limitService.getEffectiveLimits(cardId));
+    }
 }
@@ -7,14 +7,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.*;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.ExportFormat;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
 import ru.dzhenbaz.BackendBankCardsManaging.service.AuthService;
+import ru.dzhenbaz.BackendBankCardsManaging.service.IdempotencyService;
 import ru.dzhenbaz.BackendBankCardsManaging.service.TransactionService;
 
+import java.util.function.Supplier;
+
 /**
  * Контроллер для управления транзакциями по картам.
  * Позволяет получать историю транзакций, снимать средства и переводить деньги между своими картами.
@@ -26,11 +33,14 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final AuthService authService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public TransactionController(TransactionService transactionService, AuthService authService) {
+    public TransactionController(TransactionService transactionService, AuthService authService,
+                                 IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
         this.authService = authService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -53,6 +63,28 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getAllTransactions(user, type, pageable));
     }
 
+    /**
+     * Получает порцию всех транзакций текущего пользователя (или всех транзакций для администратора)
+     * по курсору, от новых к старым. В отличие от постраничного списка не выполняет подсчёт
+     * и не зависит от глубины просмотра.
+     *
+     * @param type  фильтрация по типу транзакции (опционально)
+     * @param after курсор последней полученной транзакции {@code <timestamp>,<id>} (опционально)
+     * @param limit размер порции
+     * @return порция транзакций с курсором следующей порции
+     */
+    @Operation(summary = "Просмотр всех транзакций по курсору (пользователь — только свои)")
+    @GetMapping("/scroll")
+    public ResponseEntity<TransactionScrollResponseDto> scrollAll(
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        User user = authService.getCurrentUser();
+        return ResponseEntity.ok(transactionService.scrollAllTransactions(user, type,
+                TransactionCursor.parse(after), limit));
+    }
+
     /**
      * Получает транзакции, относящиеся к конкретной карте.
      *
@@ -74,40 +106,115 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getByCardId(cardId, type, pageable));
     }
 
+    /**
+     * Получает порцию транзакций по конкретной карте по курсору, от новых к старым.
+     *
+     * @param cardId идентификатор карты
+     * @param type   фильтрация по типу транзакции (опционально)
+     * @param after  курсор последней полученной транзакции {@code <timestamp>,<id>} (опционально)
+     * @param limit  размер порции
+     * @return порция транзакций по карте с курсором следующей порции
+     */
+    @Operation(summary = "Просмотр транзакций по карте по курсору (пользователь - только по своей)")
+    @GetMapping("/cards/{cardId}/scroll")
+    public ResponseEntity<TransactionScrollResponseDto> scrollByCard(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(transactionService.scrollByCardId(cardId, type, TransactionCursor.parse(after), limit));
+    }
+
+    /**
+     * Выгружает всю историю транзакций по карте, от новых к старым.
+     * Ответ передаётся потоком по мере чтения из базы данных и не накапливается в памяти.
+     *
+     * @param cardId идентификатор карты
+     * @param type   фильтрация по типу транзакции (опционально)
+     * @param format формат выгрузки: NDJSON или CSV
+     * @return поток транзакций по карте
+     */
+    @Operation(summary = "Выгрузить историю транзакций по карте в NDJSON или CSV (пользователь - только по своей)")
+    @GetMapping("/cards/{cardId}/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format
+    ) {
+        StreamingResponseBody body = transactionService.exportByCardId(cardId, type, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"card-" + cardId + "-transactions." + format.getExtension() + "\"")
+                .body(body);
+    }
+
     /**
      * Выполняет снятие средств с указанной карты.
+     * Повторный запрос с тем же заголовком Idempotency-Key возвращает ответ первого запроса без повторного списания.
      *
-     * @param request данные о снятии
+     * @param idempotencyKey ключ идемпотентности (опционально)
+     * @param request        данные о снятии
      * @return информация о выполненной транзакции
      */
     @Operation(summary = "Снять средства со своей карты")
     @PostMapping("/withdraw")
-    public ResponseEntity<WithdrawResponseDto> withdraw(@RequestBody @Valid WithdrawRequestDto request) {
-        WithdrawResponseDto transaction = transactionService.withdraw(
-                request.getCardId(),
-                request.getAmount(),
-                request.getDescription()
-        );
-        return ResponseEntity.ok(transaction);
+    public ResponseEntity<WithdrawResponseDto> withdraw(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody @Valid WithdrawRequestDto request) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "WITHDRAW", request, WithdrawResponseDto.class,
+                () -> transactionService.withdraw(
+                        request.getCardId(),
+                        request.getAmount(),
+                        request.getDescription()
+                )));
     }
 
     /**
      * Выполняет перевод средств между двумя своими картами.
+     * Повторный запрос с тем же заголовком Idempotency-Key возвращает ответ первого запроса без повторного перевода.
      *
-     * @param request данные о переводе
+     * @param idempotencyKey ключ идемпотентности (опционально)
+     * @param request        данные о переводе
      * @return информация о выполненном переводе
      */
     @Operation(summary = "Перевод средств между своими картами")
     @PostMapping("/transfer")
-    public ResponseEntity<TransferResponseDto> transfer(@RequestBody @Valid TransferRequestDto request) {
-        TransferResponseDto response = transactionService.transfer(
-                request.getFromCardId(),
-                request.getToCardId(),
-                request.getAmount(),
-                request.getDescription()
-        );
-        return ResponseEntity.ok(response);
+    public ResponseEntity<TransferResponseDto> transfer(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody @Valid TransferRequestDto request) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "TRANSFER", request, TransferResponseDto.class,
+                () -> transactionService.transfer(
+                        request.getFromCardId(),
+                        request.getToCardId(),
+                        request.getAmount(),
+                        request.getDescription()
+                )));
     }
 
+    /**
+     * Выполняет пакет переводов между своими картами в одной транзакции.
+     * Переводы, которые нельзя выполнить, отклоняются, остальные выполняются.
+     *
+     * @param request переводы в порядке выполнения
+     * @return результат по каждому переводу
+     */
+    @Operation(summary = "Пакет переводов между своими картами")
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponseDto> transferBatch(@RequestBody @Valid BatchTransferRequestDto request) {
+        return ResponseEntity.ok(transactionService.transferBatch(request.getTransfers()));
+    }
 
+    /**
+     * Выполняет операцию через {@link IdempotencyService}, если передан ключ идемпотентности.
+     */
+    private <T> T idempotent(String idempotencyKey, String operation, Object request,
+                             Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        return idempotencyService.execute(authService.getCurrentUser().getId(), idempotencyKey, operation,
+                request, responseType, action);
+    }
 }
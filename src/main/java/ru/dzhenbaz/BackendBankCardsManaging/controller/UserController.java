@@ -3,7 +3,6 @@ package ru.dzhenbaz.BackendBankCardsManaging.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,13 +25,11 @@ public class UserController {
 
     private final UserService userService;
     private final AuthService authService;
-    private final ModelMapper modelMapper;
 
     @Autowired
-    public UserController(UserService userService, AuthService authService, ModelMapper modelMapper) {
+    public UserController(UserService userService, AuthService authService) {
         this.userService = userService;
         this.authService = authService;
-        this.modelMapper = modelMapper;
     }
 
     /**
@@ -44,7 +41,7 @@ public class UserController {
     @GetMapping
     public ResponseEntity<List<UserResponseDto>> getAll() {
         return ResponseEntity.ok(userService.getAllUsers()
-                .stream().map(user -> modelMapper.map(user, UserResponseDto.class))
+                .stream().map(UserController::mapToDto)
                 .toList());
     }
 
@@ -58,7 +55,7 @@ public class UserController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
         return userService.getById(id)
-                .map(user -> ResponseEntity.ok(modelMapper.map(user, UserResponseDto.class)))
+                .map(user -> ResponseEntity.ok(mapToDto(user)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -83,5 +80,14 @@ public class UserController {
             return ResponseEntity.badRequest().body(ex.getMessage());
         }
     }
-}
 
+    /**
+     * Преобразует пользователя в DTO.
+     *
+     * @param user пользователь
+     * @return DTO пользователя
+     */
+    private static UserResponseDto mapToDto(User user) {
+        return new UserResponseDto(user.getId(), user.getEmail(), user.getRole());
+    }
+}
@@ -0,0 +1,65 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO с результатом одного перевода из пакета.
+ * Содержит детали выполненного перевода либо причину отказа.
+ */
+@Schema(description = "Результат перевода из пакета")
+public class BatchTransferItemResultDto {
+
+    @Schema(description = "Позиция перевода в запросе, начиная с 0", example = "0")
+    private int index;
+
+    @Schema(description = "Выполнен ли перевод", example = "true")
+    private boolean success;
+
+    @Schema(description = "Причина отказа, если перевод не выполнен", example = "Insufficient balance")
+    private String error;
+
+    @Schema(description = "Детали выполненного перевода")
+    private TransferResponseDto transfer;
+
+    public BatchTransferItemResultDto() {
+    }
+
+    public BatchTransferItemResultDto(int index, boolean success, String error, TransferResponseDto transfer) {
+        this.index = index;
+        this.success = success;
+        this.error = error;
+        this.transfer = transfer;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public TransferResponseDto getTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(TransferResponseDto transfer) {
+        this.transfer = transfer;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO для запроса на пакет переводов между картами одного пользователя.
+ * Все переводы пакета выполняются в одной транзакции в порядке следования.
+ */
+@Schema(description = "Запрос на пакет переводов между картами пользователя")
+public class BatchTransferRequestDto {
+
+    @Schema(description = "Переводы в порядке выполнения", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "Transfers are required")
+    @Size(max = 1000, message = "No more than 1000 transfers per batch")
+    private List<@Valid TransferRequestDto> transfers;
+
+    public BatchTransferRequestDto() {
+    }
+
+    public BatchTransferRequestDto(List<TransferRequestDto> transfers) {
+        this.transfers = transfers;
+    }
+
+    public List<TransferRequestDto> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferRequestDto> transfers) {
+        this.transfers = transfers;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для ответа на пакет переводов.
+ * Содержит количество выполненных и отклонённых переводов и результат по каждому из них.
+ */
+@Schema(description = "Результат пакета переводов")
+public class BatchTransferResponseDto {
+
+    @Schema(description = "Количество выполненных переводов", example = "99")
+    private int completed;
+
+    @Schema(description = "Количество отклонённых переводов", example = "1")
+    private int rejected;
+
+    @Schema(description = "Результаты в порядке переводов в запросе")
+    private List<BatchTransferItemResultDto> results;
+
+    public BatchTransferResponseDto() {
+    }
+
+    public BatchTransferResponseDto(int completed, int rejected, List<BatchTransferItemResultDto> results) {
+        this.completed = completed;
+        this.rejected = rejected;
+        this.results = results;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<BatchTransferItemResultDto> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchTransferItemResultDto> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для ответа с приблизительным количеством карт.
+ * Значение берётся из кэша и может отставать от текущего состояния базы данных.
+ */
+@Schema(description = "Приблизительное количество карт")
+public class CardCountResponseDto {
+
+    @Schema(description = "Количество карт на момент подсчёта", example = "125000")
+    private long approximateTotal;
+
+    @Schema(description = "Время подсчёта", example = "2025-04-17T21:51:36.041976")
+    private LocalDateTime countedAt;
+
+    public CardCountResponseDto() {
+    }
+
+    public CardCountResponseDto(long approximateTotal, LocalDateTime countedAt) {
+        this.approximateTotal = approximateTotal;
+        this.countedAt = countedAt;
+    }
+
+    public long getApproximateTotal() {
+        return approximateTotal;
+    }
+
+    public void setApproximateTotal(long approximateTotal) {
+        this.approximateTotal = approximateTotal;
+    }
+
+    public LocalDateTime getCountedAt() {
+        return countedAt;
+    }
+
+    public void setCountedAt(LocalDateTime countedAt) {
+        this.countedAt = countedAt;
+    }
+}
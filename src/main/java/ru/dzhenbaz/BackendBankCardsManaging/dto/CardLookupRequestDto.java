@@ -0,0 +1,32 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * DTO для поиска карты по полному номеру.
+ */
+@Schema(description = "Запрос на поиск карты по номеру")
+public class CardLookupRequestDto {
+
+    @Schema(description = "Полный номер карты", example = "4000123412341234", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "Card number is required")
+    @Pattern(regexp = "\\d{16}", message = "Card number must contain 16 digits")
+    private String cardNumber;
+
+    public CardLookupRequestDto() {
+    }
+
+    public CardLookupRequestDto(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public String getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+}
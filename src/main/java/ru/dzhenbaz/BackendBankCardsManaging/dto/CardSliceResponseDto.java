@@ -0,0 +1,67 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для ответа со страницей карт без общего количества.
+ * Используется для бесконечной прокрутки, где достаточно знать, есть ли следующая страница.
+ */
+@Schema(description = "Страница карт без общего количества")
+public class CardSliceResponseDto {
+
+    @Schema(description = "Карты на странице")
+    private List<CardResponseDto> content;
+
+    @Schema(description = "Номер страницы", example = "0")
+    private int page;
+
+    @Schema(description = "Размер страницы", example = "10")
+    private int size;
+
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+
+    public CardSliceResponseDto() {
+    }
+
+    public CardSliceResponseDto(List<CardResponseDto> content, int page, int size, boolean hasNext) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<CardResponseDto> getContent() {
+        return content;
+    }
+
+    public void setContent(List<CardResponseDto> content) {
+        this.content = content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
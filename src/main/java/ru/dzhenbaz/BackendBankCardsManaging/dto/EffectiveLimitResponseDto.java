@@ -0,0 +1,71 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO для ответа с лимитом, действующим для карты.
+ * Содержит область действия правила, из которого взято значение.
+ */
+@Schema(description = "Действующий лимит карты")
+public class EffectiveLimitResponseDto {
+
+    @Schema(description = "Тип операций", example = "WITHDRAW")
+    private TransactionType operation;
+
+    @Schema(description = "Период лимита", example = "DAILY")
+    private LimitPeriod period;
+
+    @Schema(description = "Область действия правила", example = "GLOBAL")
+    private LimitScope scope;
+
+    @Schema(description = "Максимальная сумма операций за период", example = "100000.00")
+    private BigDecimal maxAmount;
+
+    public EffectiveLimitResponseDto() {
+    }
+
+    public EffectiveLimitResponseDto(TransactionType operation, LimitPeriod period, LimitScope scope,
+                                     BigDecimal maxAmount) {
+        this.operation = operation;
+        this.period = period;
+        this.scope = scope;
+        this.maxAmount = maxAmount;
+    }
+
+    public TransactionType getOperation() {
+        return operation;
+    }
+
+    public void setOperation(TransactionType operation) {
+        this.operation = operation;
+    }
+
+    public LimitPeriod getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LimitPeriod period) {
+        this.period = period;
+    }
+
+    public LimitScope getScope() {
+        return scope;
+    }
+
+    public void setScope(LimitScope scope) {
+        this.scope = scope;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+}
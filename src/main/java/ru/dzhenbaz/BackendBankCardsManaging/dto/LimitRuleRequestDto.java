@@ -0,0 +1,89 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO для запроса на создание или изменение правила лимита.
+ * Если не указаны ни карта, ни пользователь, правило действует для всех карт.
+ */
+@Schema(description = "Запрос на создание или изменение правила лимита")
+public class LimitRuleRequestDto {
+
+    @Schema(description = "Тип операций", example = "WITHDRAW", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "Operation is required")
+    private TransactionType operation;
+
+    @Schema(description = "Период лимита", example = "WEEKLY", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "Period is required")
+    private LimitPeriod period;
+
+    @Schema(description = "ID карты, для которой действует правило", example = "1")
+    private Long cardId;
+
+    @Schema(description = "ID пользователя, для карт которого действует правило", example = "1")
+    private Long userId;
+
+    @Schema(description = "Максимальная сумма операций за период", example = "50000.00",
+            requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "Max amount is required")
+    @DecimalMin(value = "0.01", message = "Max amount must be greater than zero")
+    private BigDecimal maxAmount;
+
+    public LimitRuleRequestDto() {
+    }
+
+    public LimitRuleRequestDto(TransactionType operation, LimitPeriod period, Long cardId, Long userId,
+                               BigDecimal maxAmount) {
+        this.operation = operation;
+        this.period = period;
+        this.cardId = cardId;
+        this.userId = userId;
+        this.maxAmount = maxAmount;
+    }
+
+    public TransactionType getOperation() {
+        return operation;
+    }
+
+    public void setOperation(TransactionType operation) {
+        this.operation = operation;
+    }
+
+    public LimitPeriod getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LimitPeriod period) {
+        this.period = period;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO для ответа с информацией о правиле лимита.
+ */
+@Schema(description = "Правило лимита")
+public class LimitRuleResponseDto {
+
+    @Schema(description = "ID правила", example = "1")
+    private Long id;
+
+    @Schema(description = "Тип операций", example = "WITHDRAW")
+    private TransactionType operation;
+
+    @Schema(description = "Период лимита", example = "WEEKLY")
+    private LimitPeriod period;
+
+    @Schema(description = "Область действия правила", example = "CARD")
+    private LimitScope scope;
+
+    @Schema(description = "ID карты", example = "1")
+    private Long cardId;
+
+    @Schema(description = "ID пользователя", example = "1")
+    private Long userId;
+
+    @Schema(description = "Максимальная сумма операций за период", example = "50000.00")
+    private BigDecimal maxAmount;
+
+    @Schema(description = "Время последнего изменения", example = "2025-04-17T21:51:36.041976")
+    private LocalDateTime updatedAt;
+
+    public LimitRuleResponseDto() {
+    }
+
+    public LimitRuleResponseDto(Long id, TransactionType operation, LimitPeriod period, LimitScope scope,
+                                Long cardId, Long userId, BigDecimal maxAmount, LocalDateTime updatedAt) {
+        this.id = id;
+        this.operation = operation;
+        this.period = period;
+        this.scope = scope;
+        this.cardId = cardId;
+        this.userId = userId;
+        this.maxAmount = maxAmount;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public TransactionType getOperation() {
+        return operation;
+    }
+
+    public void setOperation(TransactionType operation) {
+        this.operation = operation;
+    }
+
+    public LimitPeriod getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LimitPeriod period) {
+        this.period = period;
+    }
+
+    public LimitScope getScope() {
+        return scope;
+    }
+
+    public void setScope(LimitScope scope) {
+        this.scope = scope;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Курсор постраничного просмотра транзакций: время и идентификатор последней полученной транзакции.
+ * Транзакции упорядочены по убыванию времени, а при равном времени — по убыванию идентификатора.
+ * В запросе передаётся в виде строки {@code <timestamp>,<id>}, например {@code 2025-04-17T21:51:36.041976,42}.
+ *
+ * @param timestamp время последней полученной транзакции
+ * @param id        идентификатор последней полученной транзакции
+ */
+public record TransactionCursor(LocalDateTime timestamp, Long id) {
+
+    /**
+     * Курсор начала истории: предшествует любой сохранённой транзакции.
+     */
+    public static final TransactionCursor START = new TransactionCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    /**
+     * Разбирает курсор из параметра запроса.
+     *
+     * @param value строка вида {@code <timestamp>,<id>} либо null для начала истории
+     * @return курсор
+     * @throws IllegalArgumentException если строка имеет неверный формат
+     */
+    public static TransactionCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return START;
+        }
+
+        int separator = value.lastIndexOf(',');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: expected <timestamp>,<id>");
+        }
+        try {
+            return new TransactionCursor(LocalDateTime.parse(value.substring(0, separator).trim()),
+                    Long.parseLong(value.substring(separator + 1).trim()));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: expected <timestamp>,<id>");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + "," + id;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.dzhenbaz.BackendBankCardsManaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для ответа с порцией транзакций при просмотре истории по курсору.
+ * Содержит транзакции и курсор для запроса следующей порции.
+ */
+@Schema(description = "Порция транзакций с курсором следующей порции")
+public class TransactionScrollResponseDto {
+
+    @Schema(description = "Транзакции, от новых к старым")
+    private List<TransactionResponseDto> content;
+
+    @Schema(description = "Есть ли более старые транзакции", example = "true")
+    private boolean hasNext;
+
+    @Schema(description = "Курсор для следующей порции (параметр after), отсутствует на последней порции",
+            example = "2025-04-17T21:51:36.041976,42")
+    private String nextCursor;
+
+    public TransactionScrollResponseDto() {
+    }
+
+    public TransactionScrollResponseDto(List<TransactionResponseDto> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionResponseDto> getContent() {
+        return content;
+    }
+
+    public void setContent(List<TransactionResponseDto> content) {
+        this.content = content;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.dzhenbaz.BackendBankCardsManaging.ex;
+
+import ru.dzhenbaz.BackendBankCardsManaging.service.OperationOutcome;
+
+/**
+ * Исключение, возникающее, когда операция невозможна из-за состояния карты: карта заблокирована или истекла.
+ * Результат операции для метрик передаётся явно и не зависит от текста сообщения.
+ */
+public class CardStateException extends IllegalStateException {
+
+    private final OperationOutcome outcome;
+
+    public CardStateException(OperationOutcome outcome, String message) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public OperationOutcome getOutcome() {
+        return outcome;
+    }
+}
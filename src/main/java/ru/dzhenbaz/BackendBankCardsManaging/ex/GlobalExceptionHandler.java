@@ -1,5 +1,6 @@
 package ru.dzhenbaz.BackendBankCardsManaging.ex;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -57,6 +58,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
     }
 
+    /**
+     * Обрабатывает конфликты конкурентного изменения баланса карты,
+     * которые не удалось разрешить повтором операции.
+     *
+     * @param ex исключение {@link OptimisticLockingFailureException}
+     * @return сообщение о конфликте
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("Card balance was modified concurrently, please retry");
+    }
+
+    /**
+     * Обрабатывает повтор запроса, первая попытка которого с тем же ключом идемпотентности ещё выполняется.
+     *
+     * @param ex исключение {@link IdempotencyConflictException}
+     * @return сообщение о конфликте
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<String> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
     /**
      * Обрабатывает все непредвиденные ошибки.
      *
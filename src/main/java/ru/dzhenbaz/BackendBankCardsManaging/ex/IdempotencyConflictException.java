@@ -0,0 +1,11 @@
+package ru.dzhenbaz.BackendBankCardsManaging.ex;
+
+/**
+ * Исключение, возникающее, когда запрос с тем же ключом идемпотентности ещё выполняется.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
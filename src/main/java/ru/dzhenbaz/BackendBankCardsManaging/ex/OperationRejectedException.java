@@ -0,0 +1,22 @@
+package ru.dzhenbaz.BackendBankCardsManaging.ex;
+
+import ru.dzhenbaz.BackendBankCardsManaging.service.OperationOutcome;
+
+/**
+ * Исключение, возникающее, когда операция с деньгами отклонена из-за её параметров:
+ * карта не найдена, недостаточно средств или превышен лимит.
+ * Результат операции для метрик передаётся явно и не зависит от текста сообщения.
+ */
+public class OperationRejectedException extends IllegalArgumentException {
+
+    private final OperationOutcome outcome;
+
+    public OperationRejectedException(OperationOutcome outcome, String message) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public OperationOutcome getOutcome() {
+        return outcome;
+    }
+}
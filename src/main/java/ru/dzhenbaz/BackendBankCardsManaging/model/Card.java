@@ -3,6 +3,7 @@ package ru.dzhenbaz.BackendBankCardsManaging.model;
 import jakarta.persistence.*;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
 import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberEncryptor;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHashListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -11,20 +12,31 @@ import java.util.List;
 /**
  * Entity-класс, представляющий банковскую карту пользователя.
  * Содержит номер карты (шифруется), владельца, срок действия, баланс, статус и связанные транзакции.
+ * Поле версии используется для оптимистической блокировки баланса.
+ * Слепой индекс номера карты заполняется автоматически и используется для поиска по номеру.
+ * Последние четыре цифры хранятся открыто, чтобы маскированный номер не требовал расшифровки.
  */
 @Entity
 @Table(name = "cards")
+@EntityListeners(CardNumberHashListener.class)
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "card_number")
     @Convert(converter = CardNumberEncryptor.class)
-    private String cardNumber;
+    private CardNumber cardNumber;
 
-    @ManyToOne
+    @Column(name = "last4")
+    private String last4;
+
+    @Column(name = "card_number_hash")
+    private String cardNumberHash;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User owner;
 
@@ -37,7 +49,10 @@ public class Card {
 
     private BigDecimal balance;
 
-    @OneToMany(mappedBy = "card", fetch = FetchType.EAGER)
+    @Version
+    private Long version;
+
+    @OneToMany(mappedBy = "card")
     private List<Transaction> transactions;
 
     public Card() {
@@ -51,12 +66,39 @@ public class Card {
         this.id = id;
     }
 
+    /**
+     * Возвращает полный номер карты. Для карты, загруженной из базы данных, выполняет расшифровку.
+     *
+     * @return номер карты
+     */
     public String getCardNumber() {
-        return cardNumber;
+        return cardNumber != null ? cardNumber.value() : null;
     }
 
+    /**
+     * Устанавливает номер карты и последние четыре цифры для маскированного отображения.
+     *
+     * @param cardNumber номер карты
+     */
     public void setCardNumber(String cardNumber) {
-        this.cardNumber = cardNumber;
+        this.cardNumber = cardNumber != null ? CardNumber.of(cardNumber) : null;
+        this.last4 = cardNumber != null ? cardNumber.substring(cardNumber.length() - 4) : null;
+    }
+
+    public String getLast4() {
+        return last4;
+    }
+
+    public void setLast4(String last4) {
+        this.last4 = last4;
+    }
+
+    public String getCardNumberHash() {
+        return cardNumberHash;
+    }
+
+    public void setCardNumberHash(String cardNumberHash) {
+        this.cardNumberHash = cardNumberHash;
     }
 
     public User getOwner() {
@@ -91,6 +133,14 @@ public class Card {
         this.balance = balance;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<Transaction> getTransactions() {
         return transactions;
     }
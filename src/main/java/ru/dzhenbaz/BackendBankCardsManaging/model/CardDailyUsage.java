@@ -0,0 +1,72 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entity-класс, представляющий агрегат снятий и исходящих переводов по карте за один день.
+ * Обновляется в той же транзакции, что и списание, и позволяет проверять лимиты без суммирования транзакций.
+ */
+@Entity
+@Table(name = "card_daily_usage")
+public class CardDailyUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Column(name = "usage_date")
+    private LocalDate usageDate;
+
+    private BigDecimal withdrawn;
+
+    private BigDecimal transferred;
+
+    public CardDailyUsage() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public void setUsageDate(LocalDate usageDate) {
+        this.usageDate = usageDate;
+    }
+
+    public BigDecimal getWithdrawn() {
+        return withdrawn;
+    }
+
+    public void setWithdrawn(BigDecimal withdrawn) {
+        this.withdrawn = withdrawn;
+    }
+
+    public BigDecimal getTransferred() {
+        return transferred;
+    }
+
+    public void setTransferred(BigDecimal transferred) {
+        this.transferred = transferred;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model;
+
+import org.hibernate.annotations.Immutable;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Номер банковской карты, хранящийся в базе данных в зашифрованном виде.
+ * Номер, прочитанный из базы данных, расшифровывается только при первом обращении к {@link #value()},
+ * поэтому загрузка карт для списков, где нужен лишь маскированный номер, не выполняет криптографических операций.
+ * Значение неизменяемо, что позволяет Hibernate сравнивать его по ссылке без повторного шифрования.
+ * Номера, прочитанные из базы данных, сравниваются по зашифрованному значению, а созданные из открытого
+ * значения — по номеру, поэтому ни сравнение, ни хэш-код не требуют расшифровки.
+ */
+@Immutable
+public final class CardNumber {
+
+    private final String encrypted;
+    private final UnaryOperator<String> decryptor;
+    private volatile String plain;
+
+    private CardNumber(String plain, String encrypted, UnaryOperator<String> decryptor) {
+        this.plain = plain;
+        this.encrypted = encrypted;
+        this.decryptor = decryptor;
+    }
+
+    /**
+     * Создаёт номер карты из открытого значения.
+     *
+     * @param plain номер карты в открытом виде
+     * @return номер карты
+     */
+    public static CardNumber of(String plain) {
+        return new CardNumber(plain, null, null);
+    }
+
+    /**
+     * Создаёт номер карты из зашифрованного значения, прочитанного из базы данных.
+     *
+     * @param encrypted зашифрованный номер карты
+     * @param decryptor функция расшифровки
+     * @return номер карты
+     */
+    public static CardNumber encrypted(String encrypted, UnaryOperator<String> decryptor) {
+        return new CardNumber(null, encrypted, decryptor);
+    }
+
+    /**
+     * Возвращает номер карты в открытом виде, при необходимости расшифровывая его.
+     *
+     * @return номер карты
+     */
+    public String value() {
+        String result = plain;
+        if (result == null) {
+            result = decryptor.apply(encrypted);
+            plain = result;
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает зашифрованное значение, если номер был прочитан из базы данных.
+     *
+     * @return зашифрованный номер карты либо null
+     */
+    public String encryptedValue() {
+        return encrypted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CardNumber other)) {
+            return false;
+        }
+        if (encrypted != null || other.encrypted != null) {
+            return Objects.equals(encrypted, other.encrypted);
+        }
+        return plain.equals(other.plain);
+    }
+
+    @Override
+    public int hashCode() {
+        return encrypted != null ? encrypted.hashCode() : plain.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CardNumber[****]";
+    }
+}
@@ -0,0 +1,105 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model;
+
+import jakarta.persistence.*;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity-класс, представляющий запрос на изменение баланса с ключом идемпотентности.
+ * Ключ уникален в пределах пользователя; для выполненного запроса хранится ответ в JSON.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    private String operation;
+
+    @Column(name = "request_hash")
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+
+    private String response;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public IdempotencyStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(IdempotencyStatus status) {
+        this.status = status;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,23 +1,34 @@
 package ru.dzhenbaz.BackendBankCardsManaging.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
 /**
  * Entity-класс, представляющий лимит на операции.
  * Содержит название лимита и его максимальное значение.
+ * Версия увеличивается при каждом изменении и используется для обновления лимитов, закэшированных в памяти.
+ * Хранится в кэше второго уровня Hibernate (регион limits).
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Limit.CACHE_REGION)
 @Table(name = "limits")
 public class Limit {
 
+    public static final String CACHE_REGION = "limits";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
     private String name;
     private BigDecimal limitValue;
 
+    @Version
+    private Long version;
+
     public Limit() {
     }
 
@@ -55,4 +66,12 @@ public class Limit {
     public void setLimitValue(BigDecimal limitValue) {
         this.limitValue = limitValue;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,119 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model;
+
+import jakarta.persistence.*;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity-класс, представляющий правило лимита для одного типа операций и периода.
+ * Правило действует для всех карт, для карт одного пользователя или для одной карты.
+ */
+@Entity
+@Table(name = "limit_rules")
+public class LimitRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private TransactionType operation;
+
+    @Enumerated(EnumType.STRING)
+    private LimitPeriod period;
+
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "max_amount")
+    private BigDecimal maxAmount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public LimitRule() {
+    }
+
+    public LimitRule(TransactionType operation, LimitPeriod period, Long cardId, Long userId, BigDecimal maxAmount) {
+        this.operation = operation;
+        this.period = period;
+        this.cardId = cardId;
+        this.userId = userId;
+        this.maxAmount = maxAmount;
+    }
+
+    /**
+     * Определяет область действия правила.
+     *
+     * @return CARD, USER или GLOBAL
+     */
+    public LimitScope getScope() {
+        if (cardId != null) {
+            return LimitScope.CARD;
+        }
+        return userId != null ? LimitScope.USER : LimitScope.GLOBAL;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public TransactionType getOperation() {
+        return operation;
+    }
+
+    public void setOperation(TransactionType operation) {
+        this.operation = operation;
+    }
+
+    public LimitPeriod getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LimitPeriod period) {
+        this.period = period;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
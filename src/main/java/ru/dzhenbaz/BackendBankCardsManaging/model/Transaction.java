@@ -1,6 +1,7 @@
 package ru.dzhenbaz.BackendBankCardsManaging.model;
 
 import jakarta.persistence.*;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionDirection;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
 
 import java.math.BigDecimal;
@@ -8,23 +9,29 @@ import java.time.LocalDateTime;
 
 /**
  * Entity-класс, представляющий транзакцию по банковской карте.
- * Содержит информацию о типе операции, сумме, времени проведения и описании (опционально).
+ * Содержит информацию о типе операции, направлении движения средств, сумме, времени проведения
+ * и описании (опционально).
  */
 @Entity
 @Table(name = "transactions")
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "card_id", referencedColumnName = "id")
     private Card card;
 
     @Enumerated(EnumType.STRING)
     private TransactionType type;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionDirection direction;
+
     private BigDecimal amount;
 
     private LocalDateTime timestamp;
@@ -58,6 +65,14 @@ public class Transaction {
         this.type = type;
     }
 
+    public TransactionDirection getDirection() {
+        return direction;
+    }
+
+    public void setDirection(TransactionDirection direction) {
+        this.direction = direction;
+    }
+
     public BigDecimal getAmount() {
         return amount;
     }
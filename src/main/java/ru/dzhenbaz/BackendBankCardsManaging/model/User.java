@@ -1,20 +1,29 @@
 package ru.dzhenbaz.BackendBankCardsManaging.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 
 import java.util.List;
 
 /**
  * Entity-класс, представляющий пользователя системы.
- * Содержит email, пароль (шифруется), роль пользователя и связанные банковские карты.
+ * Содержит email, пароль (шифруется), роль пользователя, версию его токенов и связанные банковские карты.
+ * Состояние пользователя, нужное для авторизации, хранится в кэше второго уровня Hibernate (регион user-auth);
+ * коллекция карт не кэшируется.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @Table(name = "users")
 public class User {
 
+    public static final String CACHE_REGION = "user-auth";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
 
@@ -25,7 +34,10 @@ public class User {
     @Enumerated(EnumType.STRING)
     private Role role;
 
-    @OneToMany(mappedBy = "owner", fetch = FetchType.EAGER)
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    @OneToMany(mappedBy = "owner")
     private List<Card> cards;
 
     public User() {
@@ -63,6 +75,14 @@ public class User {
         this.role = role;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<Card> getCards() {
         return cards;
     }
@@ -0,0 +1,13 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Режим защиты баланса карты от конкурентных изменений.
+ * ATOMIC — снятие выполняется одним условным UPDATE без загрузки карты, переводы блокируют строки карт;
+ * PESSIMISTIC — блокировка строки карты (SELECT ... FOR UPDATE);
+ * OPTIMISTIC — проверка версии карты с повтором операции при конфликте.
+ */
+public enum BalanceLockMode {
+    ATOMIC,
+    PESSIMISTIC,
+    OPTIMISTIC
+}
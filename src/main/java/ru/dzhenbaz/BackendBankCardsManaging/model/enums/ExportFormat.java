@@ -0,0 +1,27 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Формат выгрузки истории транзакций.
+ * NDJSON — по одному JSON-объекту транзакции на строку;
+ * CSV — заголовок и по одной строке на транзакцию, значения экранируются по RFC 4180.
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Состояние запроса с ключом идемпотентности.
+ * PENDING — ключ зарезервирован, операция выполняется;
+ * COMPLETED — операция выполнена, ответ сохранён для повторных запросов.
+ */
+public enum IdempotencyStatus {
+    PENDING,
+    COMPLETED
+}
@@ -0,0 +1,29 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Период, на который действует лимит операций.
+ * TRANSACTION ограничивает сумму одной операции, остальные — сумму операций
+ * за скользящее окно из указанного количества дней, включая текущий.
+ */
+public enum LimitPeriod {
+    TRANSACTION(0, "Per-transaction"),
+    DAILY(1, "Daily"),
+    WEEKLY(7, "Weekly"),
+    MONTHLY(30, "Monthly");
+
+    private final int days;
+    private final String label;
+
+    LimitPeriod(int days, String label) {
+        this.days = days;
+        this.label = label;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Область действия правила лимита.
+ * Правило карты переопределяет правило пользователя, а оно — общее правило того же периода.
+ */
+public enum LimitScope {
+    GLOBAL,
+    USER,
+    CARD
+}
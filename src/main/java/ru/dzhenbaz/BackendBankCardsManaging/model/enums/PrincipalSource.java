@@ -0,0 +1,12 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Источник данных пользователя при аутентификации запроса по JWT токену.
+ * DATABASE — пользователь загружается по email через кэш пользователей;
+ * CLAIMS — идентификатор и роль берутся из проверенных claims токена, а версия токена сверяется
+ * с реестром версий в памяти, поэтому запрос аутентифицируется без обращения к базе данных.
+ */
+public enum PrincipalSource {
+    DATABASE,
+    CLAIMS
+}
@@ -0,0 +1,10 @@
+package ru.dzhenbaz.BackendBankCardsManaging.model.enums;
+
+/**
+ * Направление движения средств по карте в записи журнала.
+ * Снятие и исходящий перевод списывают средства, входящий перевод зачисляет их.
+ */
+public enum TransactionDirection {
+    DEBIT,
+    CREDIT
+}
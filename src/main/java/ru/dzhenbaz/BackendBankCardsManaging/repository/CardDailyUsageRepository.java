@@ -0,0 +1,169 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardDailyUsage;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для работы с сущностями {@link CardDailyUsage}.
+ * Предоставляет атомарное увеличение дневных сумм снятий и переводов, перестроение агрегата по таблице транзакций
+ * и пересчёт строки одной карты под блокировкой.
+ */
+public interface CardDailyUsageRepository extends JpaRepository<CardDailyUsage, Long> {
+
+    Optional<CardDailyUsage> findByCardIdAndUsageDate(Long cardId, LocalDate usageDate);
+
+    List<CardDailyUsage> findByCardIdAndUsageDateGreaterThanEqual(Long cardId, LocalDate from);
+
+    List<CardDailyUsage> findByCardIdInAndUsageDateGreaterThanEqual(Collection<Long> cardIds, LocalDate from);
+
+    /**
+     * Атомарно добавляет сумму к дневным снятиям по карте, если итог не превысит лимит.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     * @param amount сумма снятия
+     * @param limit  дневной лимит
+     * @return 1 — сумма учтена, 0 — строки за этот день нет или лимит будет превышен
+     */
+    @Modifying
+    @Query("UPDATE CardDailyUsage u SET u.withdrawn = u.withdrawn + :amount " +
+            "WHERE u.cardId = :cardId AND u.usageDate = :date AND u.withdrawn + :amount <= :limit")
+    int addWithdrawalWithinLimit(@Param("cardId") Long cardId,
+                                 @Param("date") LocalDate date,
+                                 @Param("amount") BigDecimal amount,
+                                 @Param("limit") BigDecimal limit);
+
+    /**
+     * Атомарно добавляет сумму к дневным исходящим переводам по карте, если итог не превысит лимит.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     * @param amount сумма перевода
+     * @param limit  дневной лимит
+     * @return 1 — сумма учтена, 0 — строки за этот день нет или лимит будет превышен
+     */
+    @Modifying
+    @Query("UPDATE CardDailyUsage u SET u.transferred = u.transferred + :amount " +
+            "WHERE u.cardId = :cardId AND u.usageDate = :date AND u.transferred + :amount <= :limit")
+    int addTransferWithinLimit(@Param("cardId") Long cardId,
+                               @Param("date") LocalDate date,
+                               @Param("amount") BigDecimal amount,
+                               @Param("limit") BigDecimal limit);
+
+    /**
+     * Добавляет суммы к дневному агрегату карты без проверки лимита.
+     * Блокирует строку агрегата до конца транзакции, поэтому операции по одной карте учитываются по очереди.
+     *
+     * @param cardId      идентификатор карты
+     * @param date        день
+     * @param withdrawn   сумма снятий
+     * @param transferred сумма исходящих переводов
+     * @return 1 — суммы учтены, 0 — строки за этот день нет
+     */
+    @Modifying
+    @Query("UPDATE CardDailyUsage u SET u.withdrawn = u.withdrawn + :withdrawn, " +
+            "u.transferred = u.transferred + :transferred " +
+            "WHERE u.cardId = :cardId AND u.usageDate = :date")
+    int addUsage(@Param("cardId") Long cardId,
+                 @Param("date") LocalDate date,
+                 @Param("withdrawn") BigDecimal withdrawn,
+                 @Param("transferred") BigDecimal transferred);
+
+    /**
+     * Создаёт пустую строку агрегата за день, если её ещё нет.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     * @return количество вставленных строк
+     */
+    @Modifying
+    @Query(value = "INSERT INTO card_daily_usage (card_id, usage_date, withdrawn, transferred) " +
+            "VALUES (:cardId, :date, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("cardId") Long cardId, @Param("date") LocalDate date);
+
+    /**
+     * Блокирует строку агрегата карты за день до конца транзакции.
+     * Операции по карте изменяют эту строку до фиксации своих записей журнала, поэтому после получения
+     * блокировки все учтённые в строке операции уже зафиксированы, а новые ждут окончания транзакции.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     * @return идентификатор строки агрегата
+     */
+    @Query(value = "SELECT id FROM card_daily_usage WHERE card_id = :cardId AND usage_date = :date FOR UPDATE",
+            nativeQuery = true)
+    Long lockRow(@Param("cardId") Long cardId, @Param("date") LocalDate date);
+
+    /**
+     * Заново вычисляет строку агрегата карты за день по операциям снятия и исходящим переводам.
+     * Должен вызываться отдельным запросом после {@link #lockRow(Long, LocalDate)}, чтобы видеть записи журнала,
+     * зафиксированные операциями, которых дождалась блокировка.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     * @param start  начало дня
+     * @param end    начало следующего дня
+     * @return количество изменённых строк
+     */
+    @Modifying
+    @Query(value = "UPDATE card_daily_usage SET " +
+            "withdrawn = COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.card_id = :cardId " +
+            "AND t.direction = 'DEBIT' AND t.type = 'WITHDRAW' AND t.timestamp >= :start AND t.timestamp < :end), 0), " +
+            "transferred = COALESCE((SELECT SUM(t.amount) FROM transactions t WHERE t.card_id = :cardId " +
+            "AND t.direction = 'DEBIT' AND t.type = 'TRANSFER' AND t.timestamp >= :start AND t.timestamp < :end), 0) " +
+            "WHERE card_id = :cardId AND usage_date = :date", nativeQuery = true)
+    int recomputeRow(@Param("cardId") Long cardId,
+                     @Param("date") LocalDate date,
+                     @Param("start") LocalDateTime start,
+                     @Param("end") LocalDateTime end);
+
+    /**
+     * Возвращает карты, у которых за день есть строка агрегата или списания в журнале.
+     *
+     * @param date  день
+     * @param start начало дня
+     * @param end   начало следующего дня
+     * @return идентификаторы карт
+     */
+    @Query(value = "SELECT card_id FROM card_daily_usage WHERE usage_date = :date " +
+            "UNION SELECT t.card_id FROM transactions t " +
+            "WHERE t.direction = 'DEBIT' AND t.timestamp >= :start AND t.timestamp < :end", nativeQuery = true)
+    List<Long> findCardIdsWithUsage(@Param("date") LocalDate date,
+                                    @Param("start") LocalDateTime start,
+                                    @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query(value = "DELETE FROM card_daily_usage WHERE usage_date = :date", nativeQuery = true)
+    int deleteByUsageDate(@Param("date") LocalDate date);
+
+    /**
+     * Заново вычисляет агрегат за день по операциям снятия и исходящим переводам из таблицы транзакций.
+     * Исходящий перевод отличается от входящего направлением записи журнала ({@code DEBIT}).
+     *
+     * @param date  день
+     * @param start начало дня
+     * @param end   начало следующего дня
+     * @return количество вставленных строк
+     */
+    @Modifying
+    @Query(value = "INSERT INTO card_daily_usage (card_id, usage_date, withdrawn, transferred) " +
+            "SELECT t.card_id, :date, " +
+            "SUM(CASE WHEN t.type = 'WITHDRAW' THEN t.amount ELSE 0 END), " +
+            "SUM(CASE WHEN t.type = 'TRANSFER' THEN t.amount ELSE 0 END) FROM transactions t " +
+            "WHERE t.direction = 'DEBIT' " +
+            "AND t.timestamp >= :start AND t.timestamp < :end " +
+            "GROUP BY t.card_id", nativeQuery = true)
+    int insertFromTransactions(@Param("date") LocalDate date,
+                               @Param("start") LocalDateTime start,
+                               @Param("end") LocalDateTime end);
+}
@@ -1,28 +1,126 @@
 package ru.dzhenbaz.BackendBankCardsManaging.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardListView;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardOperationView;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий для работы с сущностями {@link Card}.
  * Предоставляет методы для поиска карт по владельцу и статусу.
+ * Методы, возвращающие {@link Slice}, не выполняют запрос количества строк.
+ * Методы find*View* возвращают проекции для списков и не загружают сущности в контекст персистентности.
  */
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
 
-    boolean existsByCardNumber(String cardNumber);
+    /**
+     * Выборка карт для списков в проекцию {@link CardListView} без создания управляемых сущностей.
+     */
+    String LIST_VIEW = "SELECT new ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardListView(" +
+            "c.id, c.last4, c.expirationDate, c.status, c.balance, c.owner.id) FROM Card c";
+
+    boolean existsByCardNumberHash(String cardNumberHash);
+
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+
+    List<Card> findByCardNumberHashIsNullOrLast4IsNull(Pageable pageable);
 
     List<Card> findAllByOwnerId(Long ownerId);
 
-    Page<Card> findAllByStatus(CardStatus status, Pageable pageable);
+    @Query(value = LIST_VIEW, countQuery = "SELECT COUNT(c) FROM Card c")
+    Page<CardListView> findAllViews(Pageable pageable);
+
+    @Query(value = LIST_VIEW + " WHERE c.status = :status",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.status = :status")
+    Page<CardListView> findViewsByStatus(@Param("status") CardStatus status, Pageable pageable);
+
+    @Query(value = LIST_VIEW + " WHERE c.owner.id = :ownerId",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.owner.id = :ownerId")
+    Page<CardListView> findViewsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query(value = LIST_VIEW + " WHERE c.owner.id = :ownerId AND c.status = :status",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.owner.id = :ownerId AND c.status = :status")
+    Page<CardListView> findViewsByOwnerIdAndStatus(@Param("ownerId") Long ownerId,
+                                                   @Param("status") CardStatus status,
+                                                   Pageable pageable);
+
+    @Query(LIST_VIEW)
+    Slice<CardListView> findViewSliceAll(Pageable pageable);
+
+    @Query(LIST_VIEW + " WHERE c.status = :status")
+    Slice<CardListView> findViewSliceByStatus(@Param("status") CardStatus status, Pageable pageable);
+
+    @Query(LIST_VIEW + " WHERE c.owner.id = :ownerId")
+    Slice<CardListView> findViewSliceByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query(LIST_VIEW + " WHERE c.owner.id = :ownerId AND c.status = :status")
+    Slice<CardListView> findViewSliceByOwnerIdAndStatus(@Param("ownerId") Long ownerId,
+                                                        @Param("status") CardStatus status,
+                                                        Pageable pageable);
+
+    long countByStatus(CardStatus status);
+
+    /**
+     * Загружает карту с блокировкой строки на запись (SELECT ... FOR UPDATE).
+     * Блокировка удерживается до конца текущей транзакции.
+     *
+     * @param id идентификатор карты
+     * @return карта, если найдена
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Загружает карты владельца с блокировкой строк на запись в порядке возрастания идентификатора,
+     * чтобы пакетные и одиночные операции блокировали карты в одном порядке.
+     * Чужие карты не блокируются и не возвращаются.
+     *
+     * @param ids     идентификаторы карт
+     * @param ownerId идентификатор владельца карт
+     * @return найденные карты владельца
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids AND c.owner.id = :ownerId ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
 
-    Page<Card> findAllByOwnerId(Long ownerId, Pageable pageable);
+    /**
+     * Загружает данные карты, необходимые для проверки операции, без загрузки сущности и её связей.
+     *
+     * @param id идентификатор карты
+     * @return проекция карты, если найдена
+     */
+    @Query("SELECT c.id AS id, c.owner.id AS ownerId, c.cardNumber AS cardNumber, " +
+            "c.status AS status, c.expirationDate AS expirationDate FROM Card c WHERE c.id = :id")
+    Optional<CardOperationView> findOperationViewById(@Param("id") Long id);
 
-    Page<Card> findAllByOwnerIdAndStatus(Long ownerId, CardStatus status, Pageable pageable);
+    /**
+     * Атомарно списывает сумму с баланса активной карты, если средств достаточно.
+     * Увеличивает версию карты, чтобы оптимистические операции заметили изменение.
+     *
+     * @param id     идентификатор карты
+     * @param amount сумма списания
+     * @return количество обновлённых строк: 1 — списание выполнено, 0 — недостаточно средств или карта не активна
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance - :amount, c.version = c.version + 1 " +
+            "WHERE c.id = :id AND c.balance >= :amount " +
+            "AND c.status = ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus.ACTIVE")
+    int debitIfSufficient(@Param("id") Long id, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,70 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.dzhenbaz.BackendBankCardsManaging.model.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Репозиторий для работы с сущностями {@link IdempotencyRecord}.
+ * Резервирование ключа выполняется одной вставкой, уникальный индекс (user_id, idempotency_key)
+ * гарантирует, что из конкурентных запросов с одним ключом выполнится только один.
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Резервирует ключ в состоянии PENDING, если он ещё не использовался пользователем.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param operation      операция
+     * @param requestHash    хэш тела запроса
+     * @param createdAt      время резервирования
+     * @return 1 — ключ зарезервирован, 0 — ключ уже существует
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (user_id, idempotency_key, operation, request_hash, status, created_at) " +
+            "VALUES (:userId, :key, :operation, :requestHash, 'PENDING', :createdAt) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int reserve(@Param("userId") Long userId,
+                @Param("key") String idempotencyKey,
+                @Param("operation") String operation,
+                @Param("requestHash") String requestHash,
+                @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus.COMPLETED, " +
+            "r.response = :response WHERE r.userId = :userId AND r.idempotencyKey = :key")
+    int complete(@Param("userId") Long userId, @Param("key") String idempotencyKey, @Param("response") String response);
+
+    /**
+     * Продлевает резерв ключа в состоянии PENDING, если он создан раньше указанного момента.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param staleBefore    момент, раньше которого резерв считается брошенным
+     * @param now            новое время резервирования
+     * @return 1 — резерв перехвачен, 0 — резерв актуален или ключ уже завершён
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.createdAt = :now WHERE r.userId = :userId AND r.idempotencyKey = :key " +
+            "AND r.status = ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus.PENDING " +
+            "AND r.createdAt < :staleBefore")
+    int takeOverPending(@Param("userId") Long userId, @Param("key") String idempotencyKey,
+                        @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :key " +
+            "AND r.status = ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus.PENDING")
+    int release(@Param("userId") Long userId, @Param("key") String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
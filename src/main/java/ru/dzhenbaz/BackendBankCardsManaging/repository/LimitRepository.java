@@ -1,14 +1,49 @@
 package ru.dzhenbaz.BackendBankCardsManaging.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
 
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_CACHE_STORE_MODE;
+
 /**
  * Репозиторий для работы с сущностями {@link Limit}.
  * Предоставляет методы для поиска лимитов по имени.
+ * Поиск по имени использует кэш запросов и кэш второго уровня. Кэш локален для экземпляра приложения,
+ * поэтому проверка версии и перечитывание после изменения другим экземпляром идут мимо кэша.
  */
 @Repository
 public interface LimitRepository extends JpaRepository<Limit, Integer> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Limit findByName(String name);
+
+    /**
+     * Читает лимит из базы данных мимо кэша второго уровня и обновляет в кэше его состояние.
+     *
+     * @param name название лимита
+     * @return лимит или null, если он не найден
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"),
+            @QueryHint(name = HINT_SPEC_CACHE_STORE_MODE, value = "REFRESH")
+    })
+    @Query("SELECT l FROM Limit l WHERE l.name = :name")
+    Limit findFreshByName(@Param("name") String name);
+
+    /**
+     * Возвращает только версию лимита, чтобы дёшево проверять, изменился ли он.
+     *
+     * @param name название лимита
+     * @return версия лимита, если он существует
+     */
+    @Query("SELECT l.version FROM Limit l WHERE l.name = :name")
+    Optional<Long> findVersionByName(@Param("name") String name);
 }
@@ -0,0 +1,34 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.LimitRulesRevision;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для работы с сущностями {@link LimitRule}.
+ * Предоставляет поиск правил по области действия и проверку, изменялись ли правила.
+ */
+@Repository
+public interface LimitRuleRepository extends JpaRepository<LimitRule, Long> {
+
+    /**
+     * Ищет правило для типа операций и периода в заданной области действия.
+     * Отсутствующие идентификаторы карты и пользователя сравниваются как IS NULL.
+     */
+    Optional<LimitRule> findByOperationAndPeriodAndCardIdAndUserId(TransactionType operation, LimitPeriod period,
+                                                                  Long cardId, Long userId);
+
+    List<LimitRule> findAllByCardId(Long cardId);
+
+    List<LimitRule> findAllByUserId(Long userId);
+
+    @Query("SELECT COUNT(r) AS count, MAX(r.updatedAt) AS lastUpdatedAt FROM LimitRule r")
+    LimitRulesRevision findRevision();
+}
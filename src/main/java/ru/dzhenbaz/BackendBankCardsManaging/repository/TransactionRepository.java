@@ -1,25 +1,51 @@
 package ru.dzhenbaz.BackendBankCardsManaging.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
-import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.TransactionListView;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * Репозиторий для работы с сущностями {@link Transaction}.
  * Предоставляет методы для поиска и агрегации транзакций по картам, пользователям и типам операций.
+ * Постраничные запросы find*Views читают проекции для списков: сущности транзакций и карт не создаются,
+ * а последние цифры номера карты берутся тем же запросом. Запросы scroll* загружают карту транзакции
+ * тем же запросом, чтобы маппинг в DTO не порождал N+1.
+ * Запросы scroll* реализуют постраничный просмотр по курсору (timestamp, id): транзакции упорядочены
+ * от новых к старым, страница начинается сразу после курсора и не требует подсчёта общего количества.
+ * Запросы stream* предназначены для выгрузки всей истории карты без загрузки её целиком в память.
  */
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    /**
+     * Количество строк, получаемых драйвером за одно обращение к курсору при выгрузке.
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
+    /**
+     * Выборка транзакций для списков в проекцию {@link TransactionListView} без создания управляемых сущностей.
+     */
+    String LIST_VIEW = "SELECT new ru.dzhenbaz.BackendBankCardsManaging.repository.projection.TransactionListView(" +
+            "t.id, c.last4, t.type, t.amount, t.timestamp, t.description) FROM Transaction t JOIN t.card c";
+
     /**
      * Считает сумму всех снятий средств по карте за указанный период времени.
      *
@@ -36,13 +62,105 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
 
-    Page<Transaction> findAllByCard(Card card, Pageable pageable);
+    @Query(value = LIST_VIEW + " WHERE c.id = :cardId",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.card.id = :cardId")
+    Page<TransactionListView> findViewsByCardId(@Param("cardId") Long cardId, Pageable pageable);
+
+    @Query(value = LIST_VIEW + " WHERE c.id = :cardId AND t.type = :type",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.card.id = :cardId AND t.type = :type")
+    Page<TransactionListView> findViewsByCardIdAndType(@Param("cardId") Long cardId,
+                                                       @Param("type") TransactionType type,
+                                                       Pageable pageable);
+
+    @Query(value = LIST_VIEW, countQuery = "SELECT COUNT(t) FROM Transaction t")
+    Page<TransactionListView> findAllViews(Pageable pageable);
+
+    @Query(value = LIST_VIEW + " WHERE t.type = :type",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.type = :type")
+    Page<TransactionListView> findViewsByType(@Param("type") TransactionType type, Pageable pageable);
 
-    Page<Transaction> findAllByCardAndType(Card card, TransactionType type, Pageable pageable);
+    @Query(value = LIST_VIEW + " WHERE c.owner.id = :ownerId",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.card.owner.id = :ownerId")
+    Page<TransactionListView> findViewsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
 
-    Page<Transaction> findAllByType(TransactionType type, Pageable pageable);
+    @Query(value = LIST_VIEW + " WHERE c.owner.id = :ownerId AND t.type = :type",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.card.owner.id = :ownerId AND t.type = :type")
+    Page<TransactionListView> findViewsByOwnerIdAndType(@Param("ownerId") Long ownerId,
+                                                        @Param("type") TransactionType type,
+                                                        Pageable pageable);
 
-    Page<Transaction> findAllByCard_Owner(User owner, Pageable pageable);
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t WHERE t.card.id = :cardId " +
+            "AND (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollByCardId(@Param("cardId") Long cardId,
+                                      @Param("timestamp") LocalDateTime timestamp,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t WHERE t.card.id = :cardId AND t.type = :type " +
+            "AND (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollByCardIdAndType(@Param("cardId") Long cardId,
+                                             @Param("type") TransactionType type,
+                                             @Param("timestamp") LocalDateTime timestamp,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t WHERE t.card.owner.id = :ownerId " +
+            "AND (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollByOwnerId(@Param("ownerId") Long ownerId,
+                                       @Param("timestamp") LocalDateTime timestamp,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t WHERE t.card.owner.id = :ownerId AND t.type = :type " +
+            "AND (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollByOwnerIdAndType(@Param("ownerId") Long ownerId,
+                                              @Param("type") TransactionType type,
+                                              @Param("timestamp") LocalDateTime timestamp,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t " +
+            "WHERE (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollAll(@Param("timestamp") LocalDateTime timestamp,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    @EntityGraph(attributePaths = "card")
+    @Query("SELECT t FROM Transaction t WHERE t.type = :type " +
+            "AND (t.timestamp, t.id) < (:timestamp, :id) ORDER BY t.timestamp DESC, t.id DESC")
+    Slice<Transaction> scrollAllByType(@Param("type") TransactionType type,
+                                       @Param("timestamp") LocalDateTime timestamp,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    /**
+     * Читает все транзакции карты от новых к старым одним курсором базы данных.
+     * Сущности загружаются только для чтения, без снимков состояния; карта не подгружается.
+     * Поток должен быть закрыт и прочитан внутри транзакции.
+     *
+     * @param cardId идентификатор карты
+     * @return поток транзакций
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.card.id = :cardId ORDER BY t.timestamp DESC, t.id DESC")
+    Stream<Transaction> streamAllByCardId(@Param("cardId") Long cardId);
 
-    Page<Transaction> findAllByCard_OwnerAndType(User owner, TransactionType type, Pageable pageable);
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.card.id = :cardId AND t.type = :type " +
+            "ORDER BY t.timestamp DESC, t.id DESC")
+    Stream<Transaction> streamAllByCardIdAndType(@Param("cardId") Long cardId,
+                                                 @Param("type") TransactionType type);
 }
@@ -1,16 +1,33 @@
 package ru.dzhenbaz.BackendBankCardsManaging.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.UserTokenVersion;
 
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 /**
  * Репозиторий для работы с сущностями {@link User}.
  * Предоставляет методы для поиска пользователей.
+ * Поиск по email, используемый при аутентификации, обслуживается кэшем запросов и кэшем второго уровня.
  */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<User> findUserByEmail(String email);
+
+    /**
+     * Возвращает версии токенов пользователей, чьи токены хотя бы раз отзывались.
+     *
+     * @return идентификаторы пользователей и версии их токенов
+     */
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion FROM User u WHERE u.tokenVersion > 0")
+    List<UserTokenVersion> findRaisedTokenVersions();
 }
@@ -0,0 +1,22 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository.projection;
+
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Проекция карты для списков, заполняемая конструктором прямо в JPQL-запросе.
+ * Сущность {@link ru.dzhenbaz.BackendBankCardsManaging.model.Card} не создаётся и не попадает в контекст
+ * персистентности, зашифрованный номер карты не читается.
+ *
+ * @param id             идентификатор карты
+ * @param last4          последние четыре цифры номера карты
+ * @param expirationDate срок действия карты
+ * @param status         статус карты
+ * @param balance        баланс карты
+ * @param ownerId        идентификатор владельца карты
+ */
+public record CardListView(Long id, String last4, LocalDate expirationDate, CardStatus status,
+                           BigDecimal balance, Long ownerId) {
+}
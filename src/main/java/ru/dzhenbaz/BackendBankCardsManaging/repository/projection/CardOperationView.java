@@ -0,0 +1,23 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository.projection;
+
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardNumber;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Проекция карты с полями, необходимыми для проверки операции над балансом.
+ * Позволяет не загружать сущность {@link ru.dzhenbaz.BackendBankCardsManaging.model.Card} целиком.
+ */
+public interface CardOperationView {
+
+    Long getId();
+
+    Long getOwnerId();
+
+    CardNumber getCardNumber();
+
+    CardStatus getStatus();
+
+    LocalDate getExpirationDate();
+}
@@ -0,0 +1,15 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция с количеством правил лимитов и временем последнего изменения.
+ * Изменяется при любом добавлении, изменении или удалении правила,
+ * поэтому позволяет дёшево проверить, нужно ли перечитывать правила.
+ */
+public interface LimitRulesRevision {
+
+    long getCount();
+
+    LocalDateTime getLastUpdatedAt();
+}
@@ -0,0 +1,21 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository.projection;
+
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Проекция транзакции для списков, заполняемая конструктором прямо в JPQL-запросе.
+ * Сущности транзакции и карты не создаются и не попадают в контекст персистентности.
+ *
+ * @param id          идентификатор транзакции
+ * @param last4       последние четыре цифры номера карты
+ * @param type        тип операции
+ * @param amount      сумма операции
+ * @param timestamp   время операции
+ * @param description описание операции
+ */
+public record TransactionListView(Long id, String last4, TransactionType type, BigDecimal amount,
+                                  LocalDateTime timestamp, String description) {
+}
@@ -0,0 +1,12 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository.projection;
+
+/**
+ * Проекция пользователя с версией его токенов.
+ * Используется для загрузки минимальных допустимых версий токенов без загрузки пользователей целиком.
+ */
+public interface UserTokenVersion {
+
+    Long getId();
+
+    int getTokenVersion();
+}
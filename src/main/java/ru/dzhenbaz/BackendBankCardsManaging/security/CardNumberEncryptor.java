@@ -1,88 +1,151 @@
 package ru.dzhenbaz.BackendBankCardsManaging.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardNumber;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Конвертер для шифрования и расшифровки номеров банковских карт при сохранении в базу данных.
  * Использует алгоритм AES для обеспечения безопасности хранения данных.
+ * Ключ создаётся один раз, а инициализированные объекты {@link Cipher} переиспользуются через пулы,
+ * так как {@link Cipher} не потокобезопасен, а его создание дороже самого шифрования номера карты.
+ * Номер, прочитанный из базы данных, расшифровывается лениво при первом обращении к {@link CardNumber#value()}.
+ * Количество и время операций шифрования публикуются в метрике {@code card.number.cipher} с тегом operation.
  */
 @Component
 @Converter
-public class CardNumberEncryptor implements AttributeConverter<String, String> {
+public class CardNumberEncryptor implements AttributeConverter<CardNumber, String> {
 
     private static final String ALGORITHM = "AES";
+    private static final int POOL_SIZE = 64;
 
-    @Value("${security.encryption-key}")
-    private String secretKey;
+    private final SecretKeySpec key;
+    private final BlockingQueue<Cipher> encryptCiphers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Cipher> decryptCiphers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final Timer encryptTimer;
+    private final Timer decryptTimer;
 
     /**
-     * Создает Cipher для шифрования данных.
+     * Конструктор для внедрения ключа шифрования.
      *
-     * @return объект {@link Cipher} в режиме шифрования
-     * @throws Exception если не удалось создать Cipher
+     * @param secretKey     ключ шифрования
+     * @param meterRegistry реестр метрик
      */
-    private Cipher getEncryptCipher() throws Exception {
-        SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
-        Cipher c = Cipher.getInstance(ALGORITHM);
-        c.init(Cipher.ENCRYPT_MODE, key);
-        return c;
+    @Autowired
+    public CardNumberEncryptor(@Value("${security.encryption-key}") String secretKey, MeterRegistry meterRegistry) {
+        this.key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.encryptTimer = cipherTimer("encrypt", meterRegistry);
+        this.decryptTimer = cipherTimer("decrypt", meterRegistry);
+    }
+
+    private static Timer cipherTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("card.number.cipher")
+                .description("Время шифрования и расшифровки номеров карт")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 
     /**
-     * Создает Cipher для расшифровки данных.
+     * Преобразует номер карты для сохранения в базу данных.
+     * Номер, прочитанный из базы данных, сохраняется без повторного шифрования.
      *
-     * @return объект {@link Cipher} в режиме расшифровки
-     * @throws Exception если не удалось создать Cipher
+     * @param cardNumber номер карты
+     * @return зашифрованная строка для хранения в базе данных
      */
-    private Cipher getDecryptCipher() throws Exception {
-        SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
-        Cipher c = Cipher.getInstance(ALGORITHM);
-        c.init(Cipher.DECRYPT_MODE, key);
-        return c;
+    @Override
+    public String convertToDatabaseColumn(CardNumber cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        if (cardNumber.encryptedValue() != null) {
+            return cardNumber.encryptedValue();
+        }
+        return encrypt(cardNumber.value());
     }
 
     /**
-     * Шифрует номер карты перед сохранением в базу данных.
+     * Создаёт номер карты из значения в базе данных, откладывая расшифровку до первого обращения.
      *
-     * @param cardNumber номер карты в открытом виде
-     * @return зашифрованная строка для хранения в базе данных
+     * @param encrypted зашифрованная строка
+     * @return номер карты
      */
     @Override
-    public String convertToDatabaseColumn(String cardNumber) {
+    public CardNumber convertToEntityAttribute(String encrypted) {
+        if (encrypted == null) {
+            return null;
+        }
+        return CardNumber.encrypted(encrypted, this::decrypt);
+    }
+
+    /**
+     * Шифрует номер карты.
+     *
+     * @param cardNumber номер карты в открытом виде
+     * @return зашифрованная строка в Base64
+     */
+    public String encrypt(String cardNumber) {
         try {
-            if (cardNumber == null) {
-                return null;
-            }
-            Cipher cipher = getEncryptCipher();
-            byte[] encrypted = cipher.doFinal(cardNumber.getBytes());
+            long startedAt = System.nanoTime();
+            byte[] encrypted = doFinal(encryptCiphers, Cipher.ENCRYPT_MODE, cardNumber.getBytes(StandardCharsets.UTF_8));
+            encryptTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
             return Base64.getEncoder().encodeToString(encrypted);
-        } catch (Exception e) {
+        } catch (GeneralSecurityException e) {
             throw new IllegalStateException("Failed to encrypt card number", e);
         }
     }
 
     /**
-     * Расшифровывает номер карты при чтении из базы данных.
+     * Расшифровывает номер карты.
      *
-     * @param encrypted зашифрованная строка
+     * @param encrypted зашифрованная строка в Base64
      * @return номер карты в открытом виде
      */
-    @Override
-    public String convertToEntityAttribute(String encrypted) {
+    public String decrypt(String encrypted) {
         try {
-            if (encrypted == null) return null;
-            Cipher cipher = getDecryptCipher();
             byte[] decoded = Base64.getDecoder().decode(encrypted);
-            return new String(cipher.doFinal(decoded));
-        } catch (Exception e) {
+            long startedAt = System.nanoTime();
+            byte[] decrypted = doFinal(decryptCiphers, Cipher.DECRYPT_MODE, decoded);
+            decryptTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
             throw new IllegalStateException("Failed to decrypt card number", e);
         }
     }
+
+    /**
+     * Выполняет операцию на Cipher из пула.
+     * Если пул пуст, создаётся новый Cipher; после успешной операции он возвращается в пул,
+     * если там есть место. После ошибки Cipher не переиспользуется.
+     *
+     * @param pool  пул объектов Cipher для нужного режима
+     * @param mode  режим Cipher
+     * @param input входные данные
+     * @return результат операции
+     * @throws GeneralSecurityException если операция не удалась
+     */
+    private byte[] doFinal(BlockingQueue<Cipher> pool, int mode, byte[] input) throws GeneralSecurityException {
+        Cipher cipher = pool.poll();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(mode, key);
+        }
+
+        byte[] result = cipher.doFinal(input);
+        pool.offer(cipher);
+        return result;
+    }
 }
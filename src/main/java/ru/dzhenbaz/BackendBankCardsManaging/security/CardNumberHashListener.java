@@ -0,0 +1,30 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+
+/**
+ * JPA-слушатель, заполняющий слепой индекс номера карты перед сохранением.
+ * Наличие индекса проверяется первым, чтобы при обновлении карты номер не расшифровывался.
+ */
+@Component
+public class CardNumberHashListener {
+
+    private final CardNumberHasher hasher;
+
+    @Autowired
+    public CardNumberHashListener(CardNumberHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void fillCardNumberHash(Card card) {
+        if (card.getCardNumberHash() == null && card.getCardNumber() != null) {
+            card.setCardNumberHash(hasher.hash(card.getCardNumber()));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Вычисляет слепой индекс номера карты — HMAC-SHA256 с отдельным ключом.
+ * Индекс детерминирован и не зависит от схемы шифрования номера,
+ * поэтому используется для проверки уникальности и поиска карты по номеру.
+ */
+@Component
+public class CardNumberHasher {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    /**
+     * Конструктор для внедрения ключа.
+     *
+     * @param hashKey ключ HMAC
+     */
+    @Autowired
+    public CardNumberHasher(@Value("${security.card-number-hash-key}") String hashKey) {
+        this.key = new SecretKeySpec(hashKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /**
+     * Вычисляет слепой индекс номера карты.
+     *
+     * @param cardNumber номер карты в открытом виде
+     * @return HMAC номера карты в шестнадцатеричном виде
+     */
+    public String hash(String cardNumber) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to hash card number", e);
+        }
+    }
+}
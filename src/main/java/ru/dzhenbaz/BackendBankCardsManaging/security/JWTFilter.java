@@ -7,10 +7,12 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.PrincipalSource;
 import ru.dzhenbaz.BackendBankCardsManaging.service.ClientDetailsService;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
@@ -19,17 +21,25 @@ import java.io.IOException;
 /**
  * Фильтр для проверки JWT токенов в запросах.
  * Отвечает за аутентификацию пользователей на основе переданных токенов.
+ * Пользователь загружается через кэш {@link PrincipalCache}, чтобы не обращаться к базе данных на каждый запрос.
+ * В режиме {@link PrincipalSource#CLAIMS} пользователь строится из claims токена без обращения к базе данных,
+ * а токены, выданные до повышения версии токенов пользователя, отклоняются по {@link TokenVersionRegistry}.
  */
 @Component
 public class JWTFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final ClientDetailsService clientDetailsService;
+    private final TokenVersionRegistry tokenVersions;
+    private final PrincipalSource principalSource;
 
     @Autowired
-    public JWTFilter(JwtUtil jwtUtil, ClientDetailsService clientDetailsService) {
+    public JWTFilter(JwtUtil jwtUtil, ClientDetailsService clientDetailsService, TokenVersionRegistry tokenVersions,
+                     @Value("${security.principal-source:DATABASE}") PrincipalSource principalSource) {
         this.jwtUtil = jwtUtil;
         this.clientDetailsService = clientDetailsService;
+        this.tokenVersions = tokenVersions;
+        this.principalSource = principalSource;
     }
 
     /**
@@ -60,10 +70,10 @@ public class JWTFilter extends OncePerRequestFilter {
             if (jwt.isBlank()) {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST,
                         "Invalid JWT Token in Bearer Header");
+                return;
             } else {
                 try {
-                    String username = jwtUtil.validateTokenAndRetrieveClaim(jwt);
-                    UserDetails userDetails = clientDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = loadUserDetails(jwtUtil.validateToken(jwt));
 
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, userDetails.getPassword(),
                             userDetails.getAuthorities());
@@ -74,9 +84,31 @@ public class JWTFilter extends OncePerRequestFilter {
                 } catch (JWTVerificationException exception) {
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST,
                             "Invalid JWT Token");
+                    return;
                 }
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Получает пользователя для проверенного токена.
+     * Токены без claims пользователя всегда обрабатываются через загрузку по email.
+     *
+     * @param token проверенный токен
+     * @return детали пользователя
+     * @throws JWTVerificationException если токен отозван
+     */
+    private UserDetails loadUserDetails(JwtUtil.VerifiedToken token) {
+        if (principalSource != PrincipalSource.CLAIMS || !token.hasPrincipalClaims()) {
+            return clientDetailsService.loadAuthenticatedUser(token.email());
+        }
+
+        if (tokenVersions.isRevoked(token.userId(), token.version())) {
+            throw new JWTVerificationException("Token has been revoked");
+        }
+
+        return new ClientDetails(
+                new PrincipalSnapshot(token.userId(), token.email(), token.role(), token.version()).toUser());
+    }
 }
@@ -1,25 +1,73 @@
 package ru.dzhenbaz.BackendBankCardsManaging.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Base64;
 import java.util.Date;
 
 /**
  * Утилитный класс для генерации и валидации JWT токенов.
  * Использует алгоритм HMAC256 для подписи токенов.
+ * Алгоритм и верификатор создаются один раз и потокобезопасны.
+ * Результаты проверки недавних токенов могут кэшироваться по SHA-256 хэшу токена,
+ * чтобы повторные запросы с тем же токеном не проверяли подпись и не разбирали JSON заново.
+ * Токены, выданные для пользователя, дополнительно содержат его идентификатор, роль и версию токенов,
+ * что позволяет аутентифицировать запрос без обращения к базе данных.
  */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private static final String SUBJECT = "User details";
+    private static final String ISSUER = "Dzhenbaz";
+    private static final String EMAIL_CLAIM = "email";
+    private static final String ID_CLAIM = "id";
+    private static final String ROLE_CLAIM = "role";
+    private static final String VERSION_CLAIM = "ver";
+
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Конструктор для внедрения настроек.
+     *
+     * @param secret       секрет для подписи токенов
+     * @param cacheEnabled включено ли кэширование проверенных токенов
+     * @param cacheMaxSize максимальное количество токенов в кэше
+     * @param cacheTtl     максимальное время хранения токена в кэше
+     */
+    @Autowired
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.verified-cache.enabled:true}") boolean cacheEnabled,
+                   @Value("${jwt.verified-cache.max-size:10000}") long cacheMaxSize,
+                   @Value("${jwt.verified-cache.ttl:5m}") Duration cacheTtl) {
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm)
+                .withSubject(SUBJECT)
+                .withIssuer(ISSUER)
+                .build();
+        this.verifiedTokens = cacheEnabled
+                ? Caffeine.newBuilder().maximumSize(cacheMaxSize).expireAfterWrite(cacheTtl).build()
+                : null;
+    }
 
     /**
      * Генерирует JWT токен для указанного email.
@@ -28,32 +76,119 @@ public class JwtUtil {
      * @return сгенерированный JWT токен
      */
     public String generateToken(String email) {
+        return tokenBuilder(email).sign(algorithm);
+    }
+
+    /**
+     * Генерирует JWT токен с идентификатором, ролью и версией токенов пользователя.
+     *
+     * @param user    пользователь
+     * @param version текущая версия токенов пользователя
+     * @return сгенерированный JWT токен
+     */
+    public String generateToken(User user, int version) {
+        return tokenBuilder(user.getEmail())
+                .withClaim(ID_CLAIM, user.getId())
+                .withClaim(ROLE_CLAIM, user.getRole().name())
+                .withClaim(VERSION_CLAIM, version)
+                .sign(algorithm);
+    }
+
+    private JWTCreator.Builder tokenBuilder(String email) {
 
         Date expirationDate = Date.from(ZonedDateTime.now().plusMinutes(60).toInstant());
 
         return JWT.create()
-                .withSubject("User details")
-                .withClaim("email", email)
+                .withSubject(SUBJECT)
+                .withClaim(EMAIL_CLAIM, email)
                 .withIssuedAt(new Date())
-                .withIssuer("Dzhenbaz")
-                .withExpiresAt(expirationDate)
-                .sign(Algorithm.HMAC256(secret));
+                .withIssuer(ISSUER)
+                .withExpiresAt(expirationDate);
     }
 
     /**
      * Валидирует JWT токен и извлекает из него email.
+     * Если токен уже проверялся и ещё не истёк, результат берётся из кэша.
      *
      * @param token JWT токен
      * @return email, содержащийся в токене
      * @throws JWTVerificationException если токен недействителен или просрочен
      */
     public String validateTokenAndRetrieveClaim(String token) throws JWTVerificationException {
-        JWTVerifier verifier = JWT.require(Algorithm.HMAC256(secret))
-                .withSubject("User details")
-                .withIssuer("Dzhenbaz")
-                .build();
+        return validateToken(token).email();
+    }
 
+    /**
+     * Валидирует JWT токен и возвращает все его claims.
+     * Если токен уже проверялся и ещё не истёк, результат берётся из кэша.
+     *
+     * @param token JWT токен
+     * @return данные проверенного токена
+     * @throws JWTVerificationException если токен недействителен или просрочен
+     */
+    public VerifiedToken validateToken(String token) throws JWTVerificationException {
+        if (verifiedTokens == null) {
+            return verify(token);
+        }
+
+        String key = hash(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+
+        VerifiedToken verified = verify(token);
+        verifiedTokens.put(key, verified);
+        return verified;
+    }
+
+    /**
+     * Проверяет подпись и стандартные поля токена.
+     *
+     * @param token JWT токен
+     * @return данные проверенного токена
+     * @throws JWTVerificationException если токен недействителен или просрочен
+     */
+    private VerifiedToken verify(String token) throws JWTVerificationException {
         DecodedJWT jwt = verifier.verify(token);
-        return jwt.getClaim("email").asString();
+        String role = jwt.getClaim(ROLE_CLAIM).asString();
+        return new VerifiedToken(
+                jwt.getClaim(EMAIL_CLAIM).asString(),
+                jwt.getClaim(ID_CLAIM).asLong(),
+                role != null ? Role.valueOf(role) : null,
+                jwt.getClaim(VERSION_CLAIM).asInt(),
+                jwt.getExpiresAtAsInstant());
+    }
+
+    /**
+     * Вычисляет SHA-256 хэш токена, чтобы не хранить сами токены в памяти.
+     *
+     * @param token JWT токен
+     * @return хэш токена в Base64
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Данные успешно проверенного токена.
+     * Идентификатор, роль и версия отсутствуют в токенах, выданных только по email.
+     *
+     * @param email     email пользователя
+     * @param userId    идентификатор пользователя
+     * @param role      роль пользователя на момент выдачи токена
+     * @param version   версия токенов пользователя на момент выдачи
+     * @param expiresAt момент истечения токена
+     */
+    public record VerifiedToken(String email, Long userId, Role role, Integer version, Instant expiresAt) {
+
+        public boolean hasPrincipalClaims() {
+            return userId != null && role != null && version != null;
+        }
     }
 }
@@ -0,0 +1,102 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Кэш аутентифицированных пользователей по email, ограниченный по размеру и времени жизни.
+ * Позволяет JWT-фильтру не обращаться к базе данных на каждый запрос.
+ * Метрики: стандартные метрики Caffeine с именем кэша "principals",
+ * доля попаданий и количество сэкономленных обращений к базе данных.
+ */
+@Component
+public class PrincipalCache {
+
+    private static final String CACHE_NAME = "principals";
+
+    private final Cache<String, PrincipalSnapshot> cache;
+
+    /**
+     * Конструктор для внедрения настроек.
+     *
+     * @param enabled       включено ли кэширование
+     * @param maxSize       максимальное количество пользователей в кэше
+     * @param ttl           время жизни записи после загрузки
+     * @param meterRegistry реестр метрик
+     */
+    @Autowired
+    public PrincipalCache(@Value("${security.principal-cache.enabled:true}") boolean enabled,
+                          @Value("${security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${security.principal-cache.ttl:5m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("security.principal.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Доля запросов, аутентифицированных без обращения к базе данных")
+                .register(meterRegistry);
+        FunctionCounter.builder("security.principal.db.lookups.saved", cache, c -> c.stats().hitCount())
+                .description("Количество сэкономленных запросов пользователя к базе данных")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает его и сохраняет в кэш.
+     * Отсутствующие пользователи не кэшируются.
+     *
+     * @param email  email пользователя
+     * @param loader загрузка пользователя из базы данных
+     * @return снимок пользователя, если он существует
+     */
+    public Optional<PrincipalSnapshot> get(String email, Function<String, Optional<PrincipalSnapshot>> loader) {
+        if (cache == null) {
+            return loader.apply(email);
+        }
+        return Optional.ofNullable(cache.get(email, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Удаляет пользователя из кэша.
+     * Если вызвана внутри транзакции, удаление повторяется после её фиксации,
+     * чтобы параллельный запрос не успел закэшировать ещё не изменённые данные.
+     *
+     * @param email email пользователя
+     */
+    public void evict(String email) {
+        if (cache == null) {
+            return;
+        }
+
+        cache.invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(email);
+                }
+            });
+        }
+    }
+}
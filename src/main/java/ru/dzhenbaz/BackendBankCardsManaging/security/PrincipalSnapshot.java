@@ -0,0 +1,35 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+
+/**
+ * Неизменяемый снимок аутентифицированного пользователя, достаточный для авторизации запросов.
+ * Не содержит пароля и связанных сущностей, поэтому безопасно хранится в кэше между запросами.
+ *
+ * @param id           идентификатор пользователя
+ * @param email        email пользователя
+ * @param role         роль пользователя
+ * @param tokenVersion текущая версия токенов пользователя
+ */
+public record PrincipalSnapshot(Long id, String email, Role role, int tokenVersion) {
+
+    public static PrincipalSnapshot of(User user) {
+        return new PrincipalSnapshot(user.getId(), user.getEmail(), user.getRole(), user.getTokenVersion());
+    }
+
+    /**
+     * Создаёт новый экземпляр пользователя по снимку.
+     * Каждый запрос получает собственный объект, поэтому изменения в нём не затрагивают кэш.
+     *
+     * @return пользователь без пароля и связанных карт
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setRole(role);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}
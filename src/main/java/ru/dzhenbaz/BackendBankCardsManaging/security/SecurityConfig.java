@@ -1,6 +1,7 @@
 package ru.dzhenbaz.BackendBankCardsManaging.security;
 
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,6 +33,8 @@ public class SecurityConfig {
     /**
      * Конфигурация цепочки фильтров безопасности.
      * Отключает CSRF, настраивает доступ к публичным эндпоинтам и применяет JWT фильтр.
+     * Асинхронное завершение запроса (например, потоковой выгрузки) не проверяется повторно:
+     * исходный запрос уже прошёл авторизацию, а JWT фильтр для него не выполняется.
      *
      * @param http объект конфигурации {@link HttpSecurity}
      * @return сконфигурированная {@link SecurityFilterChain}
@@ -42,10 +45,12 @@ public class SecurityConfig {
         http
                 .csrf((csrf) -> csrf.disable())
                 .authorizeHttpRequests((authz) -> authz
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**",
                                 "/swagger-ui/**",
                                 "/swagger-ui.html",
                                 "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 ).sessionManagement((sm) -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
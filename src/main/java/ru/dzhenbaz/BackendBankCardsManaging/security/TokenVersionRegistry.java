@@ -0,0 +1,79 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.UserTokenVersion;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр минимальных допустимых версий токенов пользователей для режима
+ * {@link ru.dzhenbaz.BackendBankCardsManaging.model.enums.PrincipalSource#CLAIMS}.
+ * Источник версий — столбец users.token_version; реестр загружает его при запуске приложения
+ * и периодически перечитывает, поэтому проверка токена не обращается к базе данных.
+ * Хранит записи только для пользователей, чьи токены отзывались, поэтому остаётся небольшим.
+ * Смена роли на этом экземпляре применяется сразу после фиксации транзакции, на других экземплярах —
+ * не позже {@code security.token-versions.refresh-interval}.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final Map<Long, Integer> minVersions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenVersionRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Проверяет, что токен выдан с версией не ниже текущей версии токенов пользователя.
+     *
+     * @param userId  идентификатор пользователя
+     * @param version версия из токена
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(Long userId, int version) {
+        return version < minVersions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Запоминает новую версию токенов пользователя.
+     * Если вызван внутри транзакции, версия применяется после её фиксации.
+     *
+     * @param userId  идентификатор пользователя
+     * @param version новая версия токенов
+     */
+    public void raise(Long userId, int version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    minVersions.merge(userId, version, Math::max);
+                }
+            });
+        } else {
+            minVersions.merge(userId, version, Math::max);
+        }
+    }
+
+    /**
+     * Перечитывает версии токенов из базы данных, в том числе повышенные другими экземплярами приложения.
+     * Версии только растут, поэтому загруженные значения объединяются с текущими по максимуму.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.token-versions.refresh-interval:30s}",
+            initialDelayString = "${security.token-versions.refresh-interval:30s}")
+    public void refresh() {
+        for (UserTokenVersion user : userRepository.findRaisedTokenVersions()) {
+            minVersions.merge(user.getId(), user.getTokenVersion(), Math::max);
+        }
+    }
+}
@@ -15,6 +15,7 @@ import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalCache;
 
 /**
  * Сервис для аутентификации и регистрации пользователей.
@@ -27,19 +28,23 @@ public class AuthService {
     private final UserRepository repository;
     private final PasswordEncoder encoder;
     private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
 
     /**
      * Конструктор для внедрения зависимостей.
      *
      * @param repository репозиторий пользователей
      * @param encoder    шифратор паролей
-     * @param jwtUtil    утилита для генерации JWT токенов
+     * @param jwtUtil        утилита для генерации JWT токенов
+     * @param principalCache кэш аутентифицированных пользователей
      */
     @Autowired
-    public AuthService(UserRepository repository, PasswordEncoder encoder, JwtUtil jwtUtil) {
+    public AuthService(UserRepository repository, PasswordEncoder encoder, JwtUtil jwtUtil,
+                       PrincipalCache principalCache) {
         this.repository = repository;
         this.encoder = encoder;
         this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -61,11 +66,12 @@ public class AuthService {
         user.setPassword(encoder.encode(request.getPassword()));
         user.setRole(request.getRole());
         repository.save(user);
+        principalCache.evict(user.getEmail());
 
         User savedUser = repository.findUserByEmail(user.getEmail())
                 .orElseThrow(() -> new UsernameNotFoundException("User with this email not found"));
 
-        return new AuthResponseDto(jwtUtil.generateToken(savedUser.getEmail()));
+        return new AuthResponseDto(generateToken(savedUser));
     }
 
     /**
@@ -83,7 +89,7 @@ public class AuthService {
             throw new BadCredentialsException("Invalid credentials");
         }
 
-        return new AuthResponseDto((jwtUtil.generateToken(user.getEmail())));
+        return new AuthResponseDto(generateToken(user));
     }
 
     /**
@@ -97,4 +103,14 @@ public class AuthService {
 
         return clientDetails.getUser();
     }
+
+    /**
+     * Выдаёт токен с claims пользователя и текущей версией его токенов.
+     *
+     * @param user пользователь
+     * @return JWT токен
+     */
+    private String generateToken(User user) {
+        return jwtUtil.generateToken(user, user.getTokenVersion());
+    }
 }
@@ -0,0 +1,54 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardCountResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Кэш количества карт (всего и по статусам).
+ * Точный COUNT по таблице карт выполняется не чаще одного раза за время жизни записи,
+ * в остальное время возвращается последнее посчитанное значение.
+ */
+@Component
+public class CardCountCache {
+
+    private final CardRepository cardRepository;
+    private final Cache<Optional<CardStatus>, CardCountResponseDto> counts;
+
+    /**
+     * Конструктор для внедрения зависимостей и настроек.
+     *
+     * @param cardRepository репозиторий карт
+     * @param ttl            время, в течение которого значение считается актуальным
+     */
+    @Autowired
+    public CardCountCache(CardRepository cardRepository,
+                          @Value("${cards.approximate-count.ttl:1m}") Duration ttl) {
+        this.cardRepository = cardRepository;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(CardStatus.values().length + 1)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Возвращает количество карт из кэша, при отсутствии значения подсчитывает его.
+     *
+     * @param status статус карты (опционально)
+     * @return количество карт и время подсчёта
+     */
+    public CardCountResponseDto get(CardStatus status) {
+        return counts.get(Optional.ofNullable(status), key -> new CardCountResponseDto(
+                key.map(cardRepository::countByStatus).orElseGet(cardRepository::count),
+                LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHasher;
+
+import java.util.List;
+
+/**
+ * Сервис заполнения производных от номера карты столбцов — слепого индекса и последних четырёх цифр —
+ * для карт, созданных до их появления.
+ * Выполняется при старте приложения пакетами, каждый пакет в отдельной транзакции.
+ */
+@Service
+public class CardNumberBackfillService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final CardRepository cardRepository;
+    private final CardNumberHasher hasher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CardNumberBackfillService(CardRepository cardRepository, CardNumberHasher hasher,
+                                         PlatformTransactionManager transactionManager) {
+        this.cardRepository = cardRepository;
+        this.hasher = hasher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Заполняет слепой индекс и последние четыре цифры у всех карт, где они отсутствуют.
+     *
+     * @return количество обновлённых карт
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public int backfill() {
+        int total = 0;
+        int updated;
+        do {
+            updated = transactionTemplate.execute(status -> {
+                List<Card> cards = cardRepository.findByCardNumberHashIsNullOrLast4IsNull(PageRequest.of(0, BATCH_SIZE));
+                cards.forEach(this::fill);
+                return cards.size();
+            });
+            total += updated;
+        } while (updated == BATCH_SIZE);
+        return total;
+    }
+
+    private void fill(Card card) {
+        String cardNumber = card.getCardNumber();
+        if (card.getCardNumberHash() == null) {
+            card.setCardNumberHash(hasher.hash(cardNumber));
+        }
+        if (card.getLast4() == null) {
+            card.setLast4(cardNumber.substring(cardNumber.length() - 4));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHasher;
+
+import java.security.SecureRandom;
+
+/**
+ * Генератор номеров новых карт.
+ * Источник случайных чисел создаётся один раз: {@link SecureRandom} потокобезопасен,
+ * а его создание и первичная инициализация дороже генерации самого номера.
+ */
+@Component
+public class CardNumberGenerator {
+
+    private static final int LENGTH = 16;
+
+    private final CardRepository cardRepository;
+    private final CardNumberHasher cardNumberHasher;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public CardNumberGenerator(CardRepository cardRepository, CardNumberHasher cardNumberHasher) {
+        this.cardRepository = cardRepository;
+        this.cardNumberHasher = cardNumberHasher;
+    }
+
+    /**
+     * Генерирует уникальный номер карты из 16 цифр.
+     * Уникальность проверяется по слепому индексу номера.
+     *
+     * @return уникальный номер карты
+     */
+    public String generate() {
+        String cardNumber;
+
+        do {
+            StringBuilder number = new StringBuilder(LENGTH);
+            for (int i = 0; i < LENGTH; i++) {
+                number.append(random.nextInt(10));
+            }
+            cardNumber = number.toString();
+        } while (cardRepository.existsByCardNumberHash(cardNumberHasher.hash(cardNumber)));
+
+        return cardNumber;
+    }
+}
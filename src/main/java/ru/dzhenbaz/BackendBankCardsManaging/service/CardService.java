@@ -1,22 +1,25 @@
 package ru.dzhenbaz.BackendBankCardsManaging.service;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardCountResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.CardResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardSliceResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardListView;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHasher;
 
 import java.math.BigDecimal;
-import java.security.SecureRandom;
 import java.time.LocalDate;
 import java.util.Optional;
 
@@ -30,14 +33,20 @@ public class CardService {
 
     private final CardRepository cardRepository;
     private final UserService userService;
-    private final ModelMapper modelMapper;
+    private final CardNumberHasher cardNumberHasher;
+    private final CardCountCache cardCountCache;
+    private final CardNumberGenerator cardNumberGenerator;
 
 
     @Autowired
-    public CardService(CardRepository cardRepository, UserService userService, ModelMapper modelMapper) {
+    public CardService(CardRepository cardRepository, UserService userService,
+                       CardNumberHasher cardNumberHasher, CardCountCache cardCountCache,
+                       CardNumberGenerator cardNumberGenerator) {
         this.cardRepository = cardRepository;
         this.userService = userService;
-        this.modelMapper = modelMapper;
+        this.cardNumberHasher = cardNumberHasher;
+        this.cardCountCache = cardCountCache;
+        this.cardNumberGenerator = cardNumberGenerator;
     }
 
     /**
@@ -56,7 +65,7 @@ public class CardService {
 
         Card card = new Card();
         card.setOwner(user);
-        card.setCardNumber(generateCardNumber());
+        card.setCardNumber(cardNumberGenerator.generate());
         card.setExpirationDate(LocalDate.now().plusYears(2));
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(balance);
@@ -88,6 +97,19 @@ public class CardService {
         return Optional.of(mapToCardDto(card));
     }
 
+    /**
+     * Находит карту по полному номеру через слепой индекс, не расшифровывая номера других карт.
+     * Доступно только администраторам.
+     *
+     * @param cardNumber полный номер карты
+     * @return найденная карта в виде DTO, либо пустой Optional
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<CardResponseDto> getByCardNumber(String cardNumber) {
+        return cardRepository.findByCardNumberHash(cardNumberHasher.hash(cardNumber))
+                .map(this::mapToCardDto);
+    }
+
     /**
      * Получает список карт с фильтрацией по статусу и пагинацией.
      * Доступные карты зависят от роли пользователя.
@@ -98,21 +120,59 @@ public class CardService {
      * @return страница карт
      */
     public Page<CardResponseDto> getAllCards(User currentUser, CardStatus status, Pageable pageable) {
-        Page<Card> cards;
+        Page<CardListView> cards;
 
         if (currentUser.getRole() == Role.ROLE_ADMIN) {
             cards = (status != null)
-                    ? cardRepository.findAllByStatus(status, pageable)
-                    : cardRepository.findAll(pageable);
+                    ? cardRepository.findViewsByStatus(status, pageable)
+                    : cardRepository.findAllViews(pageable);
         } else {
             cards = (status != null)
-                    ? cardRepository.findAllByOwnerIdAndStatus(currentUser.getId(), status, pageable)
-                    : cardRepository.findAllByOwnerId(currentUser.getId(), pageable);
+                    ? cardRepository.findViewsByOwnerIdAndStatus(currentUser.getId(), status, pageable)
+                    : cardRepository.findViewsByOwnerId(currentUser.getId(), pageable);
         }
 
         return cards.map(this::mapToCardDto);
     }
 
+    /**
+     * Получает страницу карт без подсчёта их общего количества.
+     * Доступные карты зависят от роли пользователя, как в {@link #getAllCards}.
+     *
+     * @param currentUser текущий пользователь
+     * @param status      статус карты (опционально)
+     * @param pageable    параметры пагинации
+     * @return страница карт с признаком наличия следующей страницы
+     */
+    public CardSliceResponseDto getCardsSlice(User currentUser, CardStatus status, Pageable pageable) {
+        Slice<CardListView> cards;
+
+        if (currentUser.getRole() == Role.ROLE_ADMIN) {
+            cards = (status != null)
+                    ? cardRepository.findViewSliceByStatus(status, pageable)
+                    : cardRepository.findViewSliceAll(pageable);
+        } else {
+            cards = (status != null)
+                    ? cardRepository.findViewSliceByOwnerIdAndStatus(currentUser.getId(), status, pageable)
+                    : cardRepository.findViewSliceByOwnerId(currentUser.getId(), pageable);
+        }
+
+        return new CardSliceResponseDto(cards.map(this::mapToCardDto).getContent(),
+                cards.getNumber(), cards.getSize(), cards.hasNext());
+    }
+
+    /**
+     * Возвращает приблизительное количество карт, подсчитанное не раньше, чем истекло время жизни кэша.
+     * Доступно только администраторам.
+     *
+     * @param status статус карты (опционально)
+     * @return количество карт и время подсчёта
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardCountResponseDto getApproximateCardCount(CardStatus status) {
+        return cardCountCache.get(status);
+    }
+
     /**
      * Удаляет карту по её идентификатору.
      * Доступно только администраторам.
@@ -165,46 +225,35 @@ public class CardService {
     }
 
     /**
-     * Генерирует уникальный номер карты из 16 цифр.
+     * Преобразует сущность карты в DTO.
      *
-     * @return уникальный номер карты
+     * @param card сущность карты
+     * @return DTO карты
      */
-    private String generateCardNumber() {
-        SecureRandom random = new SecureRandom();
-        String cardNumber;
-
-        do {
-            StringBuilder number = new StringBuilder();
-            for (int i = 0; i < 16; i++) {
-                number.append(random.nextInt(10));
-            }
-            cardNumber = number.toString();
-        } while (cardRepository.existsByCardNumber(cardNumber));
-
-        return cardNumber;
+    public CardResponseDto mapToCardDto(Card card) {
+        return new CardResponseDto(card.getId(), maskCardNumber(card.getLast4()), card.getExpirationDate(),
+                card.getStatus().name(), card.getBalance(), card.getOwner().getId());
     }
 
     /**
-     * Преобразует сущность карты в DTO.
+     * Преобразует проекцию карты из списка в DTO.
      *
-     * @param card сущность карты
+     * @param card проекция карты
      * @return DTO карты
      */
-    public CardResponseDto mapToCardDto(Card card) {
-        CardResponseDto dto = modelMapper.map(card, CardResponseDto.class);
-        dto.setMaskedCardNumber(maskCardNumber(card.getCardNumber()));
-        dto.setOwnerId(card.getOwner().getId());
-        return dto;
+    public CardResponseDto mapToCardDto(CardListView card) {
+        return new CardResponseDto(card.id(), maskCardNumber(card.last4()), card.expirationDate(),
+                card.status().name(), card.balance(), card.ownerId());
     }
 
     /**
      * Маскирует номер карты, скрывая все цифры кроме последних четырех.
      *
-     * @param number полный номер карты
+     * @param last4 последние четыре цифры номера карты
      * @return маскированный номер карты
      */
-    private String maskCardNumber(String number) {
-        return "**** **** **** " + number.substring(number.length() - 4);
+    private String maskCardNumber(String last4) {
+        return "**** **** **** " + last4;
     }
 
 }
@@ -1,6 +1,7 @@
 package ru.dzhenbaz.BackendBankCardsManaging.service;
 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -9,6 +10,8 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalCache;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalSnapshot;
 
 import java.util.Optional;
 
@@ -17,13 +20,15 @@ import java.util.Optional;
  * Используется для аутентификации пользователей по email.
  */
 @Service
-@Transactional(readOnly = true)
 public class ClientDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
-    public ClientDetailsService(UserRepository userRepository) {
+    @Autowired
+    public ClientDetailsService(UserRepository userRepository, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -34,6 +39,7 @@ public class ClientDetailsService implements UserDetailsService {
      * @throws UsernameNotFoundException если пользователь не найден
      */
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
         Optional<User> user = userRepository.findUserByEmail(username);
@@ -45,5 +51,29 @@ public class ClientDetailsService implements UserDetailsService {
         return new ClientDetails(user.get());
     }
 
+    /**
+     * Загружает пользователя для аутентификации запроса по JWT токену.
+     * Использует кэш пользователей, поэтому при попадании не открывает транзакцию
+     * и не обращается к базе данных. Возвращаемые детали не содержат пароля.
+     *
+     * @param email email пользователя из токена
+     * @return детали пользователя для Spring Security
+     * @throws UsernameNotFoundException если пользователь не найден
+     */
+    public ClientDetails loadAuthenticatedUser(String email) throws UsernameNotFoundException {
+        return new ClientDetails(loadPrincipal(email).toUser());
+    }
 
+    /**
+     * Загружает снимок пользователя через кэш пользователей.
+     *
+     * @param email email пользователя из токена
+     * @return снимок пользователя
+     * @throws UsernameNotFoundException если пользователь не найден
+     */
+    public PrincipalSnapshot loadPrincipal(String email) throws UsernameNotFoundException {
+        return principalCache
+                .get(email, key -> userRepository.findUserByEmail(key).map(PrincipalSnapshot::of))
+                .orElseThrow(() -> new UsernameNotFoundException("User with this email not found"));
+    }
 }
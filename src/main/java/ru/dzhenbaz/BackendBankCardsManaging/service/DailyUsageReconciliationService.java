@@ -0,0 +1,93 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardDailyUsageRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Сервис сверки дневных сумм снятий и исходящих переводов по картам.
+ * Перестраивает таблицу card_daily_usage по фактическим операциям из таблицы transactions:
+ * завершившийся день — целиком, текущий день — по одной карте под блокировкой строки агрегата,
+ * поэтому расхождение исправляется, пока лимит текущего дня ещё действует.
+ */
+@Service
+public class DailyUsageReconciliationService {
+
+    private final CardDailyUsageRepository dailyUsageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public DailyUsageReconciliationService(CardDailyUsageRepository dailyUsageRepository,
+                                           PlatformTransactionManager transactionManager) {
+        this.dailyUsageRepository = dailyUsageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ежедневно перестраивает агрегат за предыдущий, уже завершившийся день.
+     */
+    @Scheduled(cron = "${transactions.daily-usage.reconcile-cron:0 5 0 * * *}")
+    @Transactional
+    public void reconcilePreviousDay() {
+        rebuild(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Периодически пересчитывает агрегат текущего дня по всем картам с операциями.
+     * Каждая карта пересчитывается в отдельной короткой транзакции, чтобы не задерживать операции по другим картам.
+     *
+     * @return количество пересчитанных карт
+     */
+    @Scheduled(cron = "${transactions.daily-usage.correct-cron:0 30 * * * *}")
+    public int correctToday() {
+        LocalDate today = LocalDate.now();
+        int corrected = 0;
+        for (Long cardId : dailyUsageRepository.findCardIdsWithUsage(today, today.atStartOfDay(),
+                today.plusDays(1).atStartOfDay())) {
+            correct(cardId, today);
+            corrected++;
+        }
+        return corrected;
+    }
+
+    /**
+     * Пересчитывает агрегат карты за день по журналу операций.
+     * Безопасно для текущего дня: строка агрегата блокируется до пересчёта, поэтому операции по карте,
+     * уже изменившие её, успевают зафиксироваться, а новые ждут окончания пересчёта.
+     *
+     * @param cardId идентификатор карты
+     * @param date   день
+     */
+    public void correct(Long cardId, LocalDate date) {
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        transactionTemplate.executeWithoutResult(status -> {
+            dailyUsageRepository.insertIfAbsent(cardId, date);
+            dailyUsageRepository.lockRow(cardId, date);
+            dailyUsageRepository.recomputeRow(cardId, date, start, end);
+        });
+    }
+
+    /**
+     * Перестраивает агрегат снятий и исходящих переводов за указанный день.
+     * Для текущего дня стоит вызывать только при остановленных операциях снятия,
+     * иначе параллельные снятия могут быть учтены дважды или потеряны; для текущего дня
+     * предназначен {@link #correct(Long, LocalDate)}.
+     *
+     * @param date день, за который перестраивается агрегат
+     * @return количество карт, по которым были снятия в этот день
+     */
+    @Transactional
+    public int rebuild(LocalDate date) {
+        dailyUsageRepository.deleteByUsageDate(date);
+        return dailyUsageRepository.insertFromTransactions(date, date.atStartOfDay(),
+                date.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,224 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.IdempotencyConflictException;
+import ru.dzhenbaz.BackendBankCardsManaging.model.IdempotencyRecord;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.IdempotencyRecordRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberEncryptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Сервис обработки запросов с заголовком Idempotency-Key.
+ * Перед выполнением операции ключ резервируется в таблице idempotency_keys; операция и сохранение её ответа
+ * выполняются в одной транзакции, поэтому выполненная операция не может остаться с незавершённым ключом.
+ * Повторный запрос с тем же ключом получает сохранённый ответ без повторного выполнения операции;
+ * недавние ответы берутся из ограниченного кэша в памяти без обращения к базе данных.
+ * Если операция завершилась ошибкой, резерв снимается, и запрос можно повторить. Резерв, оставшийся
+ * после аварийного завершения приложения, по истечении {@code idempotency.pending-timeout} перехватывается
+ * повторным запросом с тем же телом.
+ * Ответ может содержать номер карты, поэтому и в таблице, и в кэше он хранится зашифрованным
+ * тем же ключом, что и номера карт, и расшифровывается только при повторе.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final CardNumberEncryptor encryptor;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Duration pendingTimeout;
+    private final Cache<String, CompletedRequest> completed;
+
+    /**
+     * Конструктор для внедрения зависимостей и настроек.
+     *
+     * @param repository         репозиторий ключей идемпотентности
+     * @param objectMapper       сериализатор запросов и ответов
+     * @param encryptor          шифрование сохраняемых ответов
+     * @param transactionManager менеджер транзакций
+     * @param cacheMaxSize       максимальное количество ответов в кэше
+     * @param retention          время хранения ключей
+     * @param pendingTimeout     время, после которого незавершённый резерв ключа считается брошенным
+     */
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository, ObjectMapper objectMapper,
+                              CardNumberEncryptor encryptor, PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.cache.max-size:10000}") long cacheMaxSize,
+                              @Value("${idempotency.retention:24h}") Duration retention,
+                              @Value("${idempotency.pending-timeout:5m}") Duration pendingTimeout) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.encryptor = encryptor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.pendingTimeout = pendingTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Выполняет операцию не более одного раза для ключа идемпотентности пользователя.
+     *
+     * @param userId       идентификатор пользователя
+     * @param key          ключ идемпотентности
+     * @param operation    название операции
+     * @param request      тело запроса; повтор с тем же ключом должен содержать такое же тело
+     * @param responseType тип ответа
+     * @param action       операция
+     * @param <T>          тип ответа
+     * @return ответ операции или сохранённый ответ первого запроса
+     * @throws IllegalArgumentException     если ключ некорректен или уже использован для другого запроса
+     * @throws IdempotencyConflictException если запрос с этим ключом ещё выполняется
+     */
+    public <T> T execute(Long userId, String key, String operation, Object request,
+                         Class<T> responseType, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = hash(operation, request);
+        String cacheKey = userId + ":" + key;
+
+        CompletedRequest cached = completed.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, operation, requestHash, responseType);
+        }
+
+        Integer reserved = transactionTemplate.execute(status ->
+                repository.reserve(userId, key, operation, requestHash, LocalDateTime.now()));
+        if (reserved == null || reserved == 0) {
+            IdempotencyRecord record = repository.findByUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(IdempotencyService::inProgress);
+            if (record.getStatus() == IdempotencyStatus.COMPLETED) {
+                return replayStored(record, cacheKey, operation, requestHash, responseType);
+            }
+            checkSameRequest(record.getOperation(), record.getRequestHash(), operation, requestHash);
+            if (!takeOverStale(userId, key)) {
+                throw inProgress();
+            }
+        }
+
+        Executed<T> executed;
+        try {
+            // Ответ сохраняется в транзакции операции: она зафиксируется только вместе с ключом
+            executed = transactionTemplate.execute(status -> {
+                T result = action.get();
+                String payload = encryptor.encrypt(toJson(result));
+                repository.complete(userId, key, payload);
+                return new Executed<>(result, payload);
+            });
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> repository.release(userId, key));
+            throw e;
+        }
+
+        completed.put(cacheKey, new CompletedRequest(operation, requestHash, executed.payload()));
+        return executed.response();
+    }
+
+    /**
+     * Удаляет ключи, срок хранения которых истёк.
+     */
+    @Scheduled(cron = "${idempotency.purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        transactionTemplate.executeWithoutResult(status ->
+                repository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+    }
+
+    /**
+     * Перехватывает резерв ключа, который остался незавершённым дольше {@code pendingTimeout}.
+     * Операция и сохранение ответа фиксируются вместе, поэтому брошенный резерв означает, что операция
+     * не была выполнена. Из конкурентных повторов резерв перехватывает только один.
+     *
+     * @return true, если резерв перехвачен текущим запросом
+     */
+    private boolean takeOverStale(Long userId, String key) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer taken = transactionTemplate.execute(status ->
+                repository.takeOverPending(userId, key, now.minus(pendingTimeout), now));
+        return taken != null && taken == 1;
+    }
+
+    private <T> T replayStored(IdempotencyRecord record, String cacheKey, String operation,
+                               String requestHash, Class<T> responseType) {
+        CompletedRequest stored = new CompletedRequest(record.getOperation(), record.getRequestHash(),
+                record.getResponse());
+        completed.put(cacheKey, stored);
+        return replay(stored, operation, requestHash, responseType);
+    }
+
+    private static IdempotencyConflictException inProgress() {
+        return new IdempotencyConflictException("A request with this Idempotency-Key is being processed, please retry");
+    }
+
+    private <T> T replay(CompletedRequest stored, String operation, String requestHash, Class<T> responseType) {
+        checkSameRequest(stored.operation(), stored.requestHash(), operation, requestHash);
+        return fromJson(encryptor.decrypt(stored.response()), responseType);
+    }
+
+    private void checkSameRequest(String storedOperation, String storedHash, String operation, String requestHash) {
+        if (!storedOperation.equals(operation) || !storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key has already been used for a different request");
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((operation + ":" + toJson(request)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent request", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored idempotent response", e);
+        }
+    }
+
+    /**
+     * Выполненный запрос: операция, хэш тела запроса и зашифрованный ответ.
+     */
+    private record CompletedRequest(String operation, String requestHash, String response) {
+    }
+
+    /**
+     * Ответ выполненной операции и его зашифрованное представление для хранения.
+     */
+    private record Executed<T>(T response, String payload) {
+    }
+}
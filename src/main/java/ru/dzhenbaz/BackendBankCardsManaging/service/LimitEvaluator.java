@@ -0,0 +1,179 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardDailyUsage;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardDailyUsageRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Проверка лимитов операций по карте и учёт сумм операций в дневных агрегатах.
+ * Действующие лимиты берутся из {@link LimitRegistry} без обращения к базе данных.
+ * Сумма операции учитывается в агрегате текущего дня всегда, даже если лимитов на окна нет,
+ * чтобы правило, созданное позже, сразу видело историю операций карты.
+ * Если из окон задан только дневной лимит, проверка и учёт выполняются одним условным UPDATE.
+ * Иначе все окна проверяются за один проход по агрегатам карты, прочитанным одним запросом,
+ * поэтому количество запросов не зависит от количества правил.
+ * Все методы должны вызываться внутри транзакции операции: при превышении лимита она откатывается.
+ */
+@Component
+public class LimitEvaluator {
+
+    private final LimitRegistry limitRegistry;
+    private final CardDailyUsageRepository dailyUsageRepository;
+
+    @Autowired
+    public LimitEvaluator(LimitRegistry limitRegistry, CardDailyUsageRepository dailyUsageRepository) {
+        this.limitRegistry = limitRegistry;
+        this.dailyUsageRepository = dailyUsageRepository;
+    }
+
+    /**
+     * Проверяет лимиты операции и учитывает её сумму.
+     *
+     * @param cardId    идентификатор карты
+     * @param userId    идентификатор владельца карты
+     * @param operation тип операции
+     * @param amount    сумма операции
+     * @throws IllegalArgumentException если превышен хотя бы один лимит
+     */
+    public void checkAndRecord(Long cardId, Long userId, TransactionType operation, BigDecimal amount) {
+        LimitProfile profile = limitRegistry.profileFor(cardId, userId, operation);
+        profile.checkAmount(amount);
+        LocalDate today = LocalDate.now();
+        if (!profile.tracksUsage()) {
+            record(cardId, today, operation, amount);
+            return;
+        }
+
+        if (profile.historyDays() == LimitPeriod.DAILY.getDays()) {
+            BigDecimal dailyLimit = profile.getMaxAmount(LimitPeriod.DAILY);
+            if (addWithinDailyLimit(cardId, today, operation, amount, dailyLimit) == 1) {
+                return;
+            }
+            // Первая операция за день: создаём строку агрегата и повторяем проверку
+            dailyUsageRepository.insertIfAbsent(cardId, today);
+            if (addWithinDailyLimit(cardId, today, operation, amount, dailyLimit) == 0) {
+                throw profile.exceeded(LimitPeriod.DAILY);
+            }
+            return;
+        }
+
+        // Строка агрегата текущего дня блокируется до конца транзакции, поэтому окна читаются уже с учётом операции
+        record(cardId, today, operation, amount);
+        List<CardDailyUsage> rows = dailyUsageRepository.findByCardIdAndUsageDateGreaterThanEqual(
+                cardId, today.minusDays(profile.historyDays() - 1));
+        profile.checkUsage(LimitUsage.of(rows, operation, today));
+    }
+
+    /**
+     * Начинает проверку лимитов для пакета операций одного типа.
+     * Агрегаты всех карт пакета, для которых заданы лимиты на окна, читаются одним запросом.
+     * Карты должны быть заблокированы до конца транзакции, чтобы суммы не изменились параллельно.
+     *
+     * @param cardIds   идентификаторы карт, с которых выполняются операции
+     * @param userId    идентификатор владельца карт
+     * @param operation тип операций
+     * @return состояние проверки пакета
+     */
+    public Batch startBatch(Collection<Long> cardIds, Long userId, TransactionType operation) {
+        LocalDate today = LocalDate.now();
+        Map<Long, LimitProfile> profiles = new HashMap<>();
+        int historyDays = 0;
+        for (Long cardId : cardIds) {
+            LimitProfile profile = limitRegistry.profileFor(cardId, userId, operation);
+            profiles.put(cardId, profile);
+            historyDays = Math.max(historyDays, profile.historyDays());
+        }
+
+        Map<Long, LimitUsage> usage = new HashMap<>();
+        if (historyDays > 0) {
+            List<Long> tracked = profiles.entrySet().stream()
+                    .filter(e -> e.getValue().tracksUsage())
+                    .map(Map.Entry::getKey)
+                    .toList();
+            Map<Long, List<CardDailyUsage>> rowsByCard = new HashMap<>();
+            for (CardDailyUsage row : dailyUsageRepository.findByCardIdInAndUsageDateGreaterThanEqual(
+                    tracked, today.minusDays(historyDays - 1))) {
+                rowsByCard.computeIfAbsent(row.getCardId(), id -> new ArrayList<>()).add(row);
+            }
+            for (Long cardId : tracked) {
+                usage.put(cardId, LimitUsage.of(rowsByCard.getOrDefault(cardId, List.of()), operation, today));
+            }
+        }
+        return new Batch(operation, today, profiles, usage);
+    }
+
+    private int addWithinDailyLimit(Long cardId, LocalDate date, TransactionType operation,
+                                    BigDecimal amount, BigDecimal dailyLimit) {
+        return operation == TransactionType.WITHDRAW
+                ? dailyUsageRepository.addWithdrawalWithinLimit(cardId, date, amount, dailyLimit)
+                : dailyUsageRepository.addTransferWithinLimit(cardId, date, amount, dailyLimit);
+    }
+
+    private void record(Long cardId, LocalDate date, TransactionType operation, BigDecimal amount) {
+        BigDecimal withdrawn = operation == TransactionType.WITHDRAW ? amount : BigDecimal.ZERO;
+        BigDecimal transferred = operation == TransactionType.TRANSFER ? amount : BigDecimal.ZERO;
+        if (dailyUsageRepository.addUsage(cardId, date, withdrawn, transferred) == 0) {
+            dailyUsageRepository.insertIfAbsent(cardId, date);
+            dailyUsageRepository.addUsage(cardId, date, withdrawn, transferred);
+        }
+    }
+
+    /**
+     * Состояние проверки лимитов пакета операций.
+     * Суммы операций пакета накапливаются в памяти и записываются в агрегаты один раз на карту.
+     */
+    public final class Batch {
+
+        private final TransactionType operation;
+        private final LocalDate today;
+        private final Map<Long, LimitProfile> profiles;
+        private final Map<Long, LimitUsage> usage;
+        private final Map<Long, BigDecimal> pending = new HashMap<>();
+
+        private Batch(TransactionType operation, LocalDate today,
+                      Map<Long, LimitProfile> profiles, Map<Long, LimitUsage> usage) {
+            this.operation = operation;
+            this.today = today;
+            this.profiles = profiles;
+            this.usage = usage;
+        }
+
+        /**
+         * Проверяет лимиты очередной операции пакета с учётом предыдущих и учитывает её сумму.
+         * Отклонённая операция не влияет на суммы пакета.
+         *
+         * @param cardId идентификатор карты из списка, переданного при создании пакета
+         * @param amount сумма операции
+         * @throws IllegalArgumentException если превышен хотя бы один лимит
+         */
+        public void checkAndRecord(Long cardId, BigDecimal amount) {
+            LimitProfile profile = profiles.get(cardId);
+            profile.checkAmount(amount);
+            if (profile.tracksUsage()) {
+                LimitUsage totals = usage.get(cardId).plus(amount);
+                profile.checkUsage(totals);
+                usage.put(cardId, totals);
+            }
+            pending.merge(cardId, amount, BigDecimal::add);
+        }
+
+        /**
+         * Записывает накопленные суммы пакета в агрегаты текущего дня.
+         */
+        public void flush() {
+            pending.forEach((cardId, amount) -> record(cardId, today, operation, amount));
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import ru.dzhenbaz.BackendBankCardsManaging.ex.OperationRejectedException;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * Действующие лимиты одного типа операций для конкретной карты.
+ * Для каждого периода хранится не более одного значения — из самого конкретного правила
+ * (карта, затем пользователь, затем общее), поэтому стоимость проверки не зависит от количества правил.
+ */
+public final class LimitProfile {
+
+    private static final LimitPeriod[] PERIODS = LimitPeriod.values();
+
+    private final TransactionType operation;
+    private final BigDecimal[] maxAmounts;
+    private final LimitScope[] scopes;
+
+    /**
+     * @param operation  тип операций
+     * @param maxAmounts максимальные суммы по порядковому номеру периода, null — лимита нет
+     * @param scopes     области действия правил, из которых взяты суммы
+     */
+    LimitProfile(TransactionType operation, BigDecimal[] maxAmounts, LimitScope[] scopes) {
+        this.operation = operation;
+        this.maxAmounts = maxAmounts;
+        this.scopes = scopes;
+    }
+
+    public TransactionType getOperation() {
+        return operation;
+    }
+
+    public BigDecimal getMaxAmount(LimitPeriod period) {
+        return maxAmounts[period.ordinal()];
+    }
+
+    public LimitScope getScope(LimitPeriod period) {
+        return scopes[period.ordinal()];
+    }
+
+    /**
+     * Проверяет, нужно ли учитывать суммы операций за дни, то есть задан ли хотя бы один лимит на окно.
+     *
+     * @return true, если задан дневной, недельный или месячный лимит
+     */
+    public boolean tracksUsage() {
+        return historyDays() > 0;
+    }
+
+    /**
+     * Возвращает длину самого длинного окна среди заданных лимитов.
+     *
+     * @return количество дней истории, необходимое для проверки, или 0, если окон нет
+     */
+    public int historyDays() {
+        for (int i = PERIODS.length - 1; i > 0; i--) {
+            if (maxAmounts[i] != null) {
+                return PERIODS[i].getDays();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Проверяет сумму одной операции.
+     *
+     * @param amount сумма операции
+     * @throws IllegalArgumentException если сумма превышает лимит на одну операцию
+     */
+    public void checkAmount(BigDecimal amount) {
+        BigDecimal max = maxAmounts[LimitPeriod.TRANSACTION.ordinal()];
+        if (max != null && amount.compareTo(max) > 0) {
+            throw exceeded(LimitPeriod.TRANSACTION);
+        }
+    }
+
+    /**
+     * Проверяет все лимиты на окна за один проход.
+     *
+     * @param totals суммы операций за окна, включая проверяемую операцию
+     * @throws IllegalArgumentException если превышен хотя бы один лимит
+     */
+    public void checkUsage(LimitUsage totals) {
+        for (int i = 1; i < PERIODS.length; i++) {
+            BigDecimal max = maxAmounts[i];
+            if (max != null && totals.get(PERIODS[i]).compareTo(max) > 0) {
+                throw exceeded(PERIODS[i]);
+            }
+        }
+    }
+
+    /**
+     * Создаёт исключение о превышении лимита.
+     *
+     * @param period превышенный период
+     * @return исключение с описанием лимита
+     */
+    OperationRejectedException exceeded(LimitPeriod period) {
+        String operationName = operation == TransactionType.WITHDRAW ? "withdrawal" : "transfer";
+        return new OperationRejectedException(OperationOutcome.LIMIT_EXCEEDED,
+                period.getLabel() + " " + operationName + " limit exceeded");
+    }
+}
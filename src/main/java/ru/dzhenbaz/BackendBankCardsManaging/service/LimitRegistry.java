@@ -0,0 +1,248 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRuleRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.LimitRulesRevision;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Реестр лимитов, хранящий в памяти общий дневной лимит и все правила лимитов.
+ * Лимиты загружаются при старте и обновляются после изменения через {@link LimitService},
+ * поэтому определение действующих лимитов операции не обращается к базе данных.
+ * Изменения, сделанные другими экземплярами приложения, подхватываются периодической проверкой версии лимитов.
+ */
+@Component
+public class LimitRegistry {
+
+    public static final String DAILY_LIMIT = "daily_limit";
+    private static final BigDecimal DEFAULT_DAILY_LIMIT = BigDecimal.valueOf(1000000.00);
+
+    private static final int PERIOD_COUNT = LimitPeriod.values().length;
+    private static final int OPERATION_COUNT = TransactionType.values().length;
+
+    private final LimitRepository limitRepository;
+    private final LimitRuleRepository limitRuleRepository;
+
+    private volatile Snapshot dailyLimit;
+    private volatile RuleSet rules = RuleSet.EMPTY;
+
+    @Autowired
+    public LimitRegistry(LimitRepository limitRepository, LimitRuleRepository limitRuleRepository) {
+        this.limitRepository = limitRepository;
+        this.limitRuleRepository = limitRuleRepository;
+    }
+
+    /**
+     * Возвращает текущее значение дневного лимита.
+     *
+     * @return дневной лимит
+     */
+    public BigDecimal getDailyLimit() {
+        Snapshot snapshot = dailyLimit;
+        return snapshot != null ? snapshot.value() : refreshDailyLimit();
+    }
+
+    /**
+     * Определяет действующие лимиты операции по карте.
+     * Для каждого периода берётся правило карты, при его отсутствии — правило владельца карты,
+     * затем общее правило. Общий дневной лимит снятия задаётся отдельно (см. {@link #getDailyLimit()}).
+     *
+     * @param cardId    идентификатор карты
+     * @param userId    идентификатор владельца карты
+     * @param operation тип операции
+     * @return действующие лимиты
+     */
+    public LimitProfile profileFor(Long cardId, Long userId, TransactionType operation) {
+        RuleSet ruleSet = rules;
+        BigDecimal[] maxAmounts = new BigDecimal[PERIOD_COUNT];
+        LimitScope[] scopes = new LimitScope[PERIOD_COUNT];
+
+        if (operation == TransactionType.WITHDRAW) {
+            maxAmounts[LimitPeriod.DAILY.ordinal()] = getDailyLimit();
+            scopes[LimitPeriod.DAILY.ordinal()] = LimitScope.GLOBAL;
+        }
+        overlay(maxAmounts, scopes, ruleSet.global(), operation, LimitScope.GLOBAL);
+        if (userId != null) {
+            overlay(maxAmounts, scopes, ruleSet.byUser().get(userId), operation, LimitScope.USER);
+        }
+        if (cardId != null) {
+            overlay(maxAmounts, scopes, ruleSet.byCard().get(cardId), operation, LimitScope.CARD);
+        }
+
+        return new LimitProfile(operation, maxAmounts, scopes);
+    }
+
+    private static void overlay(BigDecimal[] maxAmounts, LimitScope[] scopes, BigDecimal[][] rules,
+                                TransactionType operation, LimitScope scope) {
+        if (rules == null) {
+            return;
+        }
+        BigDecimal[] byPeriod = rules[operation.ordinal()];
+        for (int i = 0; i < PERIOD_COUNT; i++) {
+            if (byPeriod[i] != null) {
+                maxAmounts[i] = byPeriod[i];
+                scopes[i] = scope;
+            }
+        }
+    }
+
+    /**
+     * Перечитывает из базы данных дневной лимит и правила лимитов.
+     *
+     * @return актуальное значение дневного лимита
+     */
+    @PostConstruct
+    public BigDecimal refresh() {
+        refreshRules();
+        return refreshDailyLimit();
+    }
+
+    /**
+     * Перечитывает дневной лимит из базы данных.
+     * Если лимит отсутствует, создаёт его с дефолтным значением.
+     *
+     * @return актуальное значение дневного лимита
+     */
+    private BigDecimal refreshDailyLimit() {
+        Limit limit = limitRepository.findFreshByName(DAILY_LIMIT);
+        if (limit == null) {
+            try {
+                limit = limitRepository.save(new Limit(DAILY_LIMIT, DEFAULT_DAILY_LIMIT));
+            } catch (DataIntegrityViolationException e) {
+                // Лимит одновременно создал другой экземпляр приложения
+                limit = limitRepository.findFreshByName(DAILY_LIMIT);
+            }
+        }
+        dailyLimit = new Snapshot(limit.getLimitValue(), limit.getVersion());
+        return limit.getLimitValue();
+    }
+
+    /**
+     * Перечитывает все правила лимитов.
+     * Версия правил читается до самих правил, чтобы изменение между двумя запросами
+     * было обнаружено следующей проверкой версии.
+     */
+    public void refreshRules() {
+        LimitRulesRevision revision = limitRuleRepository.findRevision();
+        rules = RuleSet.of(limitRuleRepository.findAll(), revision);
+    }
+
+    /**
+     * Перечитывает правила лимитов после их изменения.
+     * Если вызван внутри транзакции, правила перечитываются только после её фиксации.
+     */
+    public void onRulesChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshRules();
+                }
+            });
+        } else {
+            refreshRules();
+        }
+    }
+
+    /**
+     * Применяет изменённый лимит.
+     * Если вызван внутри транзакции, значение обновляется только после её фиксации.
+     *
+     * @param limit сохранённый лимит
+     */
+    public void onUpdated(Limit limit) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dailyLimit = new Snapshot(limit.getLimitValue(), limit.getVersion());
+                }
+            });
+        } else {
+            dailyLimit = new Snapshot(limit.getLimitValue(), limit.getVersion());
+        }
+    }
+
+    /**
+     * Сравнивает версии лимита и правил в базе данных с загруженными и перечитывает изменившиеся.
+     */
+    @Scheduled(fixedDelayString = "${limits.refresh-interval:30s}",
+            initialDelayString = "${limits.refresh-interval:30s}")
+    public void pollVersion() {
+        Snapshot snapshot = dailyLimit;
+        Long version = limitRepository.findVersionByName(DAILY_LIMIT).orElse(null);
+        if (snapshot == null || version == null || !Objects.equals(version, snapshot.version())) {
+            refreshDailyLimit();
+        }
+        if (!rules.matches(limitRuleRepository.findRevision())) {
+            refreshRules();
+        }
+    }
+
+    /**
+     * Загруженное значение лимита и его версия.
+     *
+     * @param value   значение лимита
+     * @param version версия лимита в базе данных
+     */
+    private record Snapshot(BigDecimal value, Long version) {
+    }
+
+    /**
+     * Загруженные правила лимитов, сгруппированные по области действия.
+     * Для каждой области хранится матрица максимальных сумм [тип операции][период].
+     *
+     * @param global        общие правила
+     * @param byUser        правила пользователей по идентификатору пользователя
+     * @param byCard        правила карт по идентификатору карты
+     * @param count         количество правил на момент загрузки
+     * @param lastUpdatedAt время последнего изменения правил на момент загрузки
+     */
+    private record RuleSet(BigDecimal[][] global, Map<Long, BigDecimal[][]> byUser, Map<Long, BigDecimal[][]> byCard,
+                           long count, LocalDateTime lastUpdatedAt) {
+
+        static final RuleSet EMPTY = new RuleSet(null, Map.of(), Map.of(), -1, null);
+
+        static RuleSet of(List<LimitRule> rules, LimitRulesRevision revision) {
+            BigDecimal[][] global = null;
+            Map<Long, BigDecimal[][]> byUser = new HashMap<>();
+            Map<Long, BigDecimal[][]> byCard = new HashMap<>();
+
+            for (LimitRule rule : rules) {
+                BigDecimal[][] target = switch (rule.getScope()) {
+                    case CARD -> byCard.computeIfAbsent(rule.getCardId(), id -> newMatrix());
+                    case USER -> byUser.computeIfAbsent(rule.getUserId(), id -> newMatrix());
+                    case GLOBAL -> global != null ? global : (global = newMatrix());
+                };
+                target[rule.getOperation().ordinal()][rule.getPeriod().ordinal()] = rule.getMaxAmount();
+            }
+            return new RuleSet(global, byUser, byCard, revision.getCount(), revision.getLastUpdatedAt());
+        }
+
+        private static BigDecimal[][] newMatrix() {
+            return new BigDecimal[OPERATION_COUNT][PERIOD_COUNT];
+        }
+
+        boolean matches(LimitRulesRevision revision) {
+            return count == revision.getCount() && Objects.equals(lastUpdatedAt, revision.getLastUpdatedAt());
+        }
+    }
+}
@@ -1,47 +1,67 @@
 package ru.dzhenbaz.BackendBankCardsManaging.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.EffectiveLimitResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitRuleRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitRuleResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRuleRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardOperationView;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Сервис для управления лимитами операций.
- * Отвечает за получение и обновление дневного лимита.
+ * Отвечает за получение и обновление дневного лимита, а также за правила лимитов
+ * (дневные, недельные, месячные и на одну операцию, общие, для пользователя и для карты).
+ * Действующие значения читаются из {@link LimitRegistry} без обращения к базе данных.
  */
 @Service
-@Transactional(readOnly = true)
 public class LimitService {
 
     private final LimitRepository limitRepository;
+    private final LimitRegistry limitRegistry;
+    private final LimitRuleRepository limitRuleRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final AuthService authService;
 
     @Autowired
-    public LimitService(LimitRepository limitRepository) {
+    public LimitService(LimitRepository limitRepository, LimitRegistry limitRegistry,
+                        LimitRuleRepository limitRuleRepository, CardRepository cardRepository,
+                        UserRepository userRepository, AuthService authService) {
         this.limitRepository = limitRepository;
+        this.limitRegistry = limitRegistry;
+        this.limitRuleRepository = limitRuleRepository;
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.authService = authService;
     }
 
     /**
      * Получает текущий дневной лимит.
-     * Если лимит отсутствует, создаёт его с дефолтным значением.
      *
      * @return DTO с информацией о лимите
      */
-    @Transactional
     public LimitResponseDto getDailyLimit() {
-        Limit limit = limitRepository.findByName("daily_limit");
-        if (limit == null) {
-            limit = new Limit();
-            limit.setName("daily_limit");
-            limit.setLimitValue(BigDecimal.valueOf(1000000.00));
-            limit = limitRepository.save(limit);
-        }
-
-        return new LimitResponseDto(limit.getName(), limit.getLimitValue());
+        return new LimitResponseDto(LimitRegistry.DAILY_LIMIT, limitRegistry.getDailyLimit());
     }
 
     /**
@@ -54,13 +74,124 @@ public class LimitService {
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public LimitResponseDto updateDailyLimit(BigDecimal newValue) {
-        Limit limit = limitRepository.findByName("daily_limit");
+        Limit limit = limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT);
         if (limit == null) {
             limit = new Limit();
-            limit.setName("daily_limit");
+            limit.setName(LimitRegistry.DAILY_LIMIT);
         }
         limit.setLimitValue(newValue);
-        limitRepository.save(limit);
+        limit = limitRepository.saveAndFlush(limit);
+        limitRegistry.onUpdated(limit);
         return new LimitResponseDto(limit.getName(), limit.getLimitValue());
     }
+
+    /**
+     * Получает правила лимитов карты, пользователя или все правила.
+     * Доступно только администраторам.
+     *
+     * @param cardId идентификатор карты (опционально)
+     * @param userId идентификатор пользователя (опционально, если карта не указана)
+     * @return список правил
+     */
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<LimitRuleResponseDto> getRules(Long cardId, Long userId) {
+        List<LimitRule> rules;
+        if (cardId != null) {
+            rules = limitRuleRepository.findAllByCardId(cardId);
+        } else if (userId != null) {
+            rules = limitRuleRepository.findAllByUserId(userId);
+        } else {
+            rules = limitRuleRepository.findAll(Sort.by("id"));
+        }
+        return rules.stream().map(this::mapToRuleDto).toList();
+    }
+
+    /**
+     * Создаёт правило лимита или изменяет значение существующего правила
+     * с теми же типом операций, периодом и областью действия.
+     * Доступно только администраторам.
+     *
+     * @param request параметры правила
+     * @return сохранённое правило
+     * @throws IllegalArgumentException если указаны одновременно карта и пользователь,
+     *                                  карта или пользователь не найдены, либо правило задаёт общий дневной лимит снятия
+     */
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public LimitRuleResponseDto saveRule(LimitRuleRequestDto request) {
+        Long cardId = request.getCardId();
+        Long userId = request.getUserId();
+        if (cardId != null && userId != null) {
+            throw new IllegalArgumentException("Limit rule can target either a card or a user, not both");
+        }
+        if (cardId == null && userId == null && request.getOperation() == TransactionType.WITHDRAW
+                && request.getPeriod() == LimitPeriod.DAILY) {
+            throw new IllegalArgumentException("Global daily withdrawal limit is changed via /limits/daily");
+        }
+        if (cardId != null && !cardRepository.existsById(cardId)) {
+            throw new IllegalArgumentException("Card not found");
+        }
+        if (userId != null && !userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        LimitRule rule = limitRuleRepository.findByOperationAndPeriodAndCardIdAndUserId(
+                        request.getOperation(), request.getPeriod(), cardId, userId)
+                .orElseGet(() -> new LimitRule(request.getOperation(), request.getPeriod(), cardId, userId, null));
+        rule.setMaxAmount(request.getMaxAmount());
+        rule.setUpdatedAt(LocalDateTime.now());
+        limitRuleRepository.save(rule);
+        limitRegistry.onRulesChanged();
+        return mapToRuleDto(rule);
+    }
+
+    /**
+     * Удаляет правило лимита.
+     * Доступно только администраторам.
+     *
+     * @param id идентификатор правила
+     * @throws IllegalArgumentException если правило не найдено
+     */
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public void deleteRule(Long id) {
+        LimitRule rule = limitRuleRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Limit rule not found"));
+        limitRuleRepository.delete(rule);
+        limitRegistry.onRulesChanged();
+    }
+
+    /**
+     * Получает лимиты, действующие для карты, с учётом правил карты, её владельца и общих правил.
+     * Пользователь видит только лимиты своих карт, администратор — любых.
+     *
+     * @param cardId идентификатор карты
+     * @return действующие лимиты по типам операций и периодам
+     */
+    public List<EffectiveLimitResponseDto> getEffectiveLimits(Long cardId) {
+        User currentUser = authService.getCurrentUser();
+        CardOperationView card = cardRepository.findOperationViewById(cardId)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        if (!card.getOwnerId().equals(currentUser.getId()) && currentUser.getRole() != Role.ROLE_ADMIN) {
+            throw new AccessDeniedException("Access denied");
+        }
+
+        List<EffectiveLimitResponseDto> limits = new ArrayList<>();
+        for (TransactionType operation : TransactionType.values()) {
+            LimitProfile profile = limitRegistry.profileFor(cardId, card.getOwnerId(), operation);
+            for (LimitPeriod period : LimitPeriod.values()) {
+                BigDecimal maxAmount = profile.getMaxAmount(period);
+                if (maxAmount != null) {
+                    limits.add(new EffectiveLimitResponseDto(operation, period, profile.getScope(period), maxAmount));
+                }
+            }
+        }
+        return limits;
+    }
+
+    private LimitRuleResponseDto mapToRuleDto(LimitRule rule) {
+        return new LimitRuleResponseDto(rule.getId(), rule.getOperation(), rule.getPeriod(), rule.getScope(),
+                rule.getCardId(), rule.getUserId(), rule.getMaxAmount(), rule.getUpdatedAt());
+    }
 }
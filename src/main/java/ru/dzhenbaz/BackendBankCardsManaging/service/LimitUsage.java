@@ -0,0 +1,78 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardDailyUsage;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Суммы операций одного типа по карте за скользящие окна в 1, 7 и 30 дней.
+ *
+ * @param daily   сумма за текущий день
+ * @param weekly  сумма за последние 7 дней
+ * @param monthly сумма за последние 30 дней
+ */
+public record LimitUsage(BigDecimal daily, BigDecimal weekly, BigDecimal monthly) {
+
+    public static final LimitUsage EMPTY = new LimitUsage(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+    /**
+     * Вычисляет суммы за все окна за один проход по дневным агрегатам карты.
+     *
+     * @param rows      дневные агрегаты карты не старше 30 дней
+     * @param operation тип операций
+     * @param today     текущий день
+     * @return суммы за окна
+     */
+    public static LimitUsage of(List<CardDailyUsage> rows, TransactionType operation, LocalDate today) {
+        LocalDate weekStart = today.minusDays(LimitPeriod.WEEKLY.getDays() - 1);
+        LocalDate monthStart = today.minusDays(LimitPeriod.MONTHLY.getDays() - 1);
+        BigDecimal daily = BigDecimal.ZERO;
+        BigDecimal weekly = BigDecimal.ZERO;
+        BigDecimal monthly = BigDecimal.ZERO;
+
+        for (CardDailyUsage row : rows) {
+            LocalDate date = row.getUsageDate();
+            if (date.isBefore(monthStart) || date.isAfter(today)) {
+                continue;
+            }
+            BigDecimal amount = operation == TransactionType.WITHDRAW ? row.getWithdrawn() : row.getTransferred();
+            monthly = monthly.add(amount);
+            if (!date.isBefore(weekStart)) {
+                weekly = weekly.add(amount);
+            }
+            if (date.equals(today)) {
+                daily = daily.add(amount);
+            }
+        }
+        return new LimitUsage(daily, weekly, monthly);
+    }
+
+    /**
+     * Возвращает суммы с учётом ещё одной операции.
+     *
+     * @param amount сумма операции
+     * @return новые суммы
+     */
+    public LimitUsage plus(BigDecimal amount) {
+        return new LimitUsage(daily.add(amount), weekly.add(amount), monthly.add(amount));
+    }
+
+    /**
+     * Возвращает сумму за окно указанного периода.
+     *
+     * @param period период лимита, кроме TRANSACTION
+     * @return сумма операций
+     */
+    public BigDecimal get(LimitPeriod period) {
+        return switch (period) {
+            case DAILY -> daily;
+            case WEEKLY -> weekly;
+            case MONTHLY -> monthly;
+            case TRANSACTION -> throw new IllegalArgumentException("Per-transaction limit has no usage window");
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * Метрики операций с деньгами.
+ * <ul>
+ *     <li>{@code bank.operation} — время операции целиком, включая фиксацию транзакции и повторы,
+ *     по типу операции и результату ({@link OperationOutcome}); гистограмма позволяет считать p50/p99
+ *     по всем экземплярам приложения;</li>
+ *     <li>{@code bank.operation.limit.check} — время проверки и учёта лимитов внутри операции;</li>
+ *     <li>{@code bank.operation.amount} — сумма выполненных операций;</li>
+ *     <li>{@code bank.operation.batch.items} — переводы пакета по результату.</li>
+ * </ul>
+ */
+public class OperationMetrics {
+
+    public static final String WITHDRAW = "withdraw";
+    public static final String TRANSFER = "transfer";
+    public static final String TRANSFER_BATCH = "transfer_batch";
+
+    private final MeterRegistry meterRegistry;
+    private final Meter.MeterProvider<Timer> operationTimers;
+    private final Meter.MeterProvider<Timer> limitCheckTimers;
+    private final Meter.MeterProvider<Counter> amountCounters;
+    private final Meter.MeterProvider<Counter> batchItemCounters;
+
+    /**
+     * Создаёт метрики операций в указанном реестре.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public OperationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.operationTimers = Timer.builder("bank.operation")
+                .description("Время выполнения операции с деньгами")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.limitCheckTimers = Timer.builder("bank.operation.limit.check")
+                .description("Время проверки и учёта лимитов операции")
+                .publishPercentiles(0.5, 0.99)
+                .withRegistry(meterRegistry);
+        this.amountCounters = Counter.builder("bank.operation.amount")
+                .description("Сумма выполненных операций")
+                .withRegistry(meterRegistry);
+        this.batchItemCounters = Counter.builder("bank.operation.batch.items")
+                .description("Переводы пакета по результату")
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Выполняет операцию, замеряя её время с учётом результата.
+     *
+     * @param operation тип операции
+     * @param body      операция
+     * @param <T>       тип результата операции
+     * @return результат операции
+     */
+    public <T> T record(String operation, Supplier<T> body) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        OperationOutcome outcome = OperationOutcome.ERROR;
+        try {
+            T result = body.get();
+            outcome = OperationOutcome.OK;
+            return result;
+        } catch (RuntimeException e) {
+            outcome = OperationOutcome.of(e);
+            throw e;
+        } finally {
+            sample.stop(operationTimers.withTags(Tags.of("operation", operation, "outcome", outcome.tag())));
+        }
+    }
+
+    /**
+     * Выполняет проверку лимитов, замеряя её время.
+     *
+     * @param operation тип операции
+     * @param check     проверка лимитов
+     */
+    public void limitCheck(String operation, Runnable check) {
+        limitCheckTimers.withTag("operation", operation).record(check);
+    }
+
+    /**
+     * Выполняет проверку лимитов, замеряя её время.
+     *
+     * @param operation тип операции
+     * @param check     проверка лимитов
+     * @param <T>       тип результата проверки
+     * @return результат проверки
+     */
+    public <T> T limitCheck(String operation, Supplier<T> check) {
+        return limitCheckTimers.withTag("operation", operation).record(check);
+    }
+
+    /**
+     * Добавляет сумму выполненной операции к счётчику перемещённых сумм.
+     *
+     * @param operation тип операции
+     * @param amount    сумма операции
+     */
+    public void moved(String operation, BigDecimal amount) {
+        amountCounters.withTag("operation", operation).increment(amount.doubleValue());
+    }
+
+    /**
+     * Учитывает результат перевода из пакета.
+     *
+     * @param outcome результат перевода
+     */
+    public void batchItem(OperationOutcome outcome) {
+        batchItemCounters.withTag("outcome", outcome.tag()).increment();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.access.AccessDeniedException;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.CardStateException;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.OperationRejectedException;
+
+/**
+ * Результат операции с деньгами, используемый как тег метрик {@link OperationMetrics}.
+ * Результат неуспешной операции определяется по исключению, с которым она завершилась.
+ */
+public enum OperationOutcome {
+    OK,
+    INSUFFICIENT_BALANCE,
+    LIMIT_EXCEEDED,
+    BLOCKED,
+    EXPIRED,
+    NOT_FOUND,
+    ACCESS_DENIED,
+    CONFLICT,
+    INVALID,
+    ERROR;
+
+    private final String tag = name().toLowerCase();
+
+    /**
+     * Возвращает значение тега метрик.
+     *
+     * @return название результата в нижнем регистре
+     */
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * Определяет результат операции по исключению, с которым она завершилась.
+     * Отказы операции передают результат в исключении, поэтому изменение текста сообщения не влияет на метрики.
+     *
+     * @param e исключение операции
+     * @return результат операции
+     */
+    public static OperationOutcome of(Throwable e) {
+        if (e instanceof OperationRejectedException rejected) {
+            return rejected.getOutcome();
+        }
+        if (e instanceof CardStateException cardState) {
+            return cardState.getOutcome();
+        }
+        if (e instanceof AccessDeniedException) {
+            return ACCESS_DENIED;
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            return CONFLICT;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return INVALID;
+        }
+        return ERROR;
+    }
+}
@@ -1,42 +1,92 @@
 package ru.dzhenbaz.BackendBankCardsManaging.service;
 
-import org.modelmapper.ModelMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.BatchTransferItemResultDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.BatchTransferResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionCursor;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionScrollResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransferRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.TransferResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.CardStateException;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.OperationRejectedException;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
-import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.BalanceLockMode;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.ExportFormat;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionDirection;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
-import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
-
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardOperationView;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.TransactionListView;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления транзакциями.
  * Реализует операции снятия средств, перевода между картами, а также получение списка транзакций.
+ * Изменение баланса защищено от конкурентных обновлений в соответствии с режимом {@link BalanceLockMode}.
+ * Время, результат и суммы операций с деньгами публикуются в метриках (см. {@link OperationMetrics}).
  */
 @Service
 public class TransactionService {
 
+    private static final int MAX_SCROLL_LIMIT = 100;
+
     private final TransactionRepository transactionRepository;
     private final CardRepository cardRepository;
     private final AuthService authService;
-    private final LimitRepository limitRepository;
-    private final ModelMapper modelMapper;
+    private final LimitEvaluator limitEvaluator;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate exportTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final OperationMetrics metrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${transactions.locking.mode:ATOMIC}")
+    private BalanceLockMode lockMode = BalanceLockMode.ATOMIC;
+
+    @Value("${transactions.locking.optimistic-max-attempts:5}")
+    private int optimisticMaxAttempts = 5;
 
     /**
      * Конструктор для внедрения зависимостей.
@@ -44,17 +94,25 @@ public class TransactionService {
      * @param transactionRepository репозиторий транзакций
      * @param cardRepository        репозиторий карт
      * @param authService           сервис аутентификации
-     * @param limitRepository       репозиторий лимитов
-     * @param modelMapper           маппер для преобразования сущностей в DTO
+     * @param limitEvaluator        проверка лимитов операций
+     * @param transactionManager    менеджер транзакций для операций с повтором и выгрузки
+     * @param objectMapper          сериализатор транзакций при выгрузке в NDJSON
+     * @param meterRegistry         реестр метрик операций
      */
     @Autowired
     public TransactionService(TransactionRepository transactionRepository, CardRepository cardRepository,
-                              AuthService authService, LimitRepository limitRepository, ModelMapper modelMapper) {
+                              AuthService authService, LimitEvaluator limitEvaluator,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
         this.cardRepository = cardRepository;
         this.authService = authService;
-        this.limitRepository = limitRepository;
-        this.modelMapper = modelMapper;
+        this.limitEvaluator = limitEvaluator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.metrics = new OperationMetrics(meterRegistry);
     }
 
     /**
@@ -67,21 +125,73 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponseDto> getByCardId(Long cardId, TransactionType type, Pageable pageable) {
-        User currentUser = authService.getCurrentUser();
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-
-        if (!card.getOwner().getId().equals(currentUser.getId()) && currentUser.getRole() != Role.ROLE_ADMIN) {
-            throw new AccessDeniedException("Access denied");
-        }
+        checkCardReadAccess(cardId);
 
-        Page<Transaction> txPage = (type != null)
-                ? transactionRepository.findAllByCardAndType(card, type, pageable)
-                : transactionRepository.findAllByCard(card, pageable);
+        Page<TransactionListView> txPage = (type != null)
+                ? transactionRepository.findViewsByCardIdAndType(cardId, type, pageable)
+                : transactionRepository.findViewsByCardId(cardId, pageable);
 
         return txPage.map(this::mapToDto);
     }
 
+    /**
+     * Получает порцию транзакций по карте после указанного курсора, от новых к старым.
+     * Время получения порции не зависит от её положения в истории, общее количество не подсчитывается.
+     *
+     * @param cardId идентификатор карты
+     * @param type   тип транзакции (опционально)
+     * @param after  курсор последней полученной транзакции
+     * @param limit  размер порции
+     * @return порция транзакций с курсором следующей порции
+     */
+    @Transactional(readOnly = true)
+    public TransactionScrollResponseDto scrollByCardId(Long cardId, TransactionType type,
+                                                       TransactionCursor after, int limit) {
+        checkCardReadAccess(cardId);
+        Pageable pageable = scrollPage(limit);
+
+        Slice<Transaction> slice = (type != null)
+                ? transactionRepository.scrollByCardIdAndType(cardId, type, after.timestamp(), after.id(), pageable)
+                : transactionRepository.scrollByCardId(cardId, after.timestamp(), after.id(), pageable);
+
+        return mapToScrollDto(slice);
+    }
+
+    /**
+     * Готовит выгрузку всей истории транзакций карты, от новых к старым.
+     * Права доступа проверяются сразу, в потоке запроса. Сама выгрузка выполняется при записи ответа:
+     * транзакции читаются одним курсором базы данных и отсоединяются от контекста сразу после записи,
+     * поэтому расход памяти не зависит от объёма истории.
+     *
+     * @param cardId идентификатор карты
+     * @param type   тип транзакции (опционально)
+     * @param format формат выгрузки
+     * @return тело ответа, записывающее транзакции в выходной поток
+     */
+    public StreamingResponseBody exportByCardId(Long cardId, TransactionType type, ExportFormat format) {
+        checkCardReadAccess(cardId);
+
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            exportTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Transaction> transactions = (type != null)
+                        ? transactionRepository.streamAllByCardIdAndType(cardId, type)
+                        : transactionRepository.streamAllByCardId(cardId)) {
+                    if (format == ExportFormat.CSV) {
+                        writer.write("id,cardNumber,type,amount,timestamp,description\n");
+                    }
+                    transactions.forEach(tx -> {
+                        writeExportLine(writer, format, mapToDto(tx));
+                        entityManager.detach(tx);
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+    }
+
     /**
      * Получает список всех транзакций для текущего пользователя.
      *
@@ -93,42 +203,168 @@ public class TransactionService {
     @Transactional(readOnly = true)
     public Page<TransactionResponseDto> getAllTransactions(User currentUser,
                                                            TransactionType type, Pageable pageable) {
-        Page<Transaction> txPage;
+        Page<TransactionListView> txPage;
 
         if (currentUser.getRole() == Role.ROLE_ADMIN) {
             txPage = (type != null)
-                    ? transactionRepository.findAllByType(type, pageable)
-                    : transactionRepository.findAll(pageable);
+                    ? transactionRepository.findViewsByType(type, pageable)
+                    : transactionRepository.findAllViews(pageable);
 
         } else {
             if (type != null) {
-                txPage = transactionRepository.findAllByCard_OwnerAndType(currentUser, type, pageable);
+                txPage = transactionRepository.findViewsByOwnerIdAndType(currentUser.getId(), type, pageable);
             } else {
-                txPage = transactionRepository.findAllByCard_Owner(currentUser, pageable);
+                txPage = transactionRepository.findViewsByOwnerId(currentUser.getId(), pageable);
             }
         }
 
         return txPage.map(this::mapToDto);
     }
 
+    /**
+     * Получает порцию всех транзакций текущего пользователя (или всех транзакций для администратора)
+     * после указанного курсора, от новых к старым.
+     *
+     * @param currentUser текущий пользователь
+     * @param type        тип транзакции (опционально)
+     * @param after       курсор последней полученной транзакции
+     * @param limit       размер порции
+     * @return порция транзакций с курсором следующей порции
+     */
+    @Transactional(readOnly = true)
+    public TransactionScrollResponseDto scrollAllTransactions(User currentUser, TransactionType type,
+                                                              TransactionCursor after, int limit) {
+        Pageable pageable = scrollPage(limit);
+        Slice<Transaction> slice;
+
+        if (currentUser.getRole() == Role.ROLE_ADMIN) {
+            slice = (type != null)
+                    ? transactionRepository.scrollAllByType(type, after.timestamp(), after.id(), pageable)
+                    : transactionRepository.scrollAll(after.timestamp(), after.id(), pageable);
+        } else {
+            slice = (type != null)
+                    ? transactionRepository.scrollByOwnerIdAndType(currentUser.getId(), type,
+                    after.timestamp(), after.id(), pageable)
+                    : transactionRepository.scrollByOwnerId(currentUser.getId(), after.timestamp(), after.id(), pageable);
+        }
+
+        return mapToScrollDto(slice);
+    }
+
     /**
      * Выполняет операцию снятия средств с карты.
+     * Каждая попытка выполняется в отдельной транзакции (см. {@link #executeBalanceOperation(Supplier)}).
      *
      * @param cardId      идентификатор карты
      * @param amount      сумма снятия
      * @param description описание операции (опционально)
      * @return DTO с деталями операции
      */
-    @Transactional
     public WithdrawResponseDto withdraw(Long cardId, BigDecimal amount, String description) {
-        User user = authService.getCurrentUser();
+        WithdrawResponseDto response = metrics.record(OperationMetrics.WITHDRAW, () -> {
+            User user = authService.getCurrentUser();
+            return executeBalanceOperation(() -> doWithdraw(cardId, user, amount, description));
+        });
+        metrics.moved(OperationMetrics.WITHDRAW, amount);
+        return response;
+    }
+
+    /**
+     * Выполняет перевод средств между двумя картами одного пользователя.
+     * Каждая попытка выполняется в отдельной транзакции (см. {@link #executeBalanceOperation(Supplier)}).
+     *
+     * @param fromCardId  идентификатор карты отправителя
+     * @param toCardId    идентификатор карты получателя
+     * @param amount      сумма перевода
+     * @param description описание операции (опционально)
+     * @return DTO с деталями перевода
+     */
+    public TransferResponseDto transfer(Long fromCardId, Long toCardId, BigDecimal amount, String description) {
+        TransferResponseDto response = metrics.record(OperationMetrics.TRANSFER, () -> {
+            User user = authService.getCurrentUser();
+
+            if (fromCardId.equals(toCardId)) {
+                throw new IllegalArgumentException("Cannot transfer to the same card");
+            }
+
+            return executeBalanceOperation(() -> doTransfer(fromCardId, toCardId, user, amount, description));
+        });
+        metrics.moved(OperationMetrics.TRANSFER, amount);
+        return response;
+    }
+
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя в одной транзакции.
+     * Переводы применяются по порядку; перевод, который нельзя выполнить (карта не найдена или чужая,
+     * карта заблокирована, недостаточно средств или превышен лимит с учётом предыдущих переводов пакета), отклоняется,
+     * остальные выполняются.
+     *
+     * @param transfers переводы в порядке выполнения
+     * @return результат по каждому переводу
+     */
+    public BatchTransferResponseDto transferBatch(List<TransferRequestDto> transfers) {
+        BatchTransferResponseDto response = metrics.record(OperationMetrics.TRANSFER_BATCH, () -> {
+            User user = authService.getCurrentUser();
+            return transactionTemplate.execute(status -> doTransferBatch(transfers, user));
+        });
+        for (BatchTransferItemResultDto result : response.getResults()) {
+            if (result.getTransfer() != null) {
+                metrics.moved(OperationMetrics.TRANSFER_BATCH, result.getTransfer().getAmount());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Выполняет операцию над балансом в транзакции с учётом режима блокировки.
+     * В режиме OPTIMISTIC при конфликте версий операция повторяется в новой транзакции,
+     * но не более {@code optimisticMaxAttempts} раз. Если операция выполняется во внешней транзакции
+     * (например, вместе с сохранением ответа идемпотентного запроса), повтор невозможен:
+     * конфликт версий откатывает внешнюю транзакцию и передаётся вызывающему.
+     *
+     * @param operation операция над балансом
+     * @param <T>       тип результата операции
+     * @return результат операции
+     * @throws OptimisticLockingFailureException если все попытки завершились конфликтом версий
+     */
+    private <T> T executeBalanceOperation(Supplier<T> operation) {
+        if (lockMode != BalanceLockMode.OPTIMISTIC || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> operation.get());
+        }
+
+        OptimisticLockingFailureException lastFailure = null;
+        for (int attempt = 0; attempt < optimisticMaxAttempts; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (OptimisticLockingFailureException ex) {
+                lastFailure = ex;
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Снимает средства с карты в рамках текущей транзакции.
+     *
+     * @param cardId      идентификатор карты
+     * @param user        текущий пользователь
+     * @param amount      сумма снятия
+     * @param description описание операции (опционально)
+     * @return DTO с деталями операции
+     */
+    private WithdrawResponseDto doWithdraw(Long cardId, User user, BigDecimal amount, String description) {
+        if (lockMode == BalanceLockMode.ATOMIC) {
+            return doAtomicWithdraw(cardId, user, amount, description);
+        }
+
         Card card = getCardForCurrentUser(cardId, user);
 
         validateCard(card);
-        validateLimit(card, amount);
+        metrics.limitCheck(OperationMetrics.WITHDRAW,
+                () -> limitEvaluator.checkAndRecord(card.getId(), user.getId(), TransactionType.WITHDRAW, amount));
 
         if (card.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
+            throw new OperationRejectedException(OperationOutcome.INSUFFICIENT_BALANCE, "Insufficient balance");
         }
 
         card.setBalance(card.getBalance().subtract(amount));
@@ -138,42 +374,81 @@ public class TransactionService {
         tx.setCard(card);
         tx.setAmount(amount);
         tx.setType(TransactionType.WITHDRAW);
+        tx.setDirection(TransactionDirection.DEBIT);
         tx.setTimestamp(LocalDateTime.now());
         tx.setDescription(description);
         transactionRepository.save(tx);
 
-        WithdrawResponseDto dto = modelMapper.map(tx, WithdrawResponseDto.class);
-        dto.setCardNumber(tx.getCard().getCardNumber());
+        return new WithdrawResponseDto(tx.getId(), card.getCardNumber(), tx.getType(),
+                tx.getAmount(), tx.getTimestamp(), tx.getDescription());
+    }
+
+    /**
+     * Снимает средства одним условным UPDATE без загрузки сущности карты.
+     * Если средств недостаточно, исключение откатывает уже учтённые суммы снятий.
+     *
+     * @param cardId      идентификатор карты
+     * @param user        текущий пользователь
+     * @param amount      сумма снятия
+     * @param description описание операции (опционально)
+     * @return DTO с деталями операции
+     */
+    private WithdrawResponseDto doAtomicWithdraw(Long cardId, User user, BigDecimal amount, String description) {
+        CardOperationView view = cardRepository.findOperationViewById(cardId)
+                .orElseThrow(() -> new OperationRejectedException(OperationOutcome.NOT_FOUND, "Card not found"));
+
+        if (!view.getOwnerId().equals(user.getId())) {
+            throw new AccessDeniedException("You can't access someone else's card");
+        }
+        validateCard(view.getStatus(), view.getExpirationDate());
+        metrics.limitCheck(OperationMetrics.WITHDRAW,
+                () -> limitEvaluator.checkAndRecord(cardId, user.getId(), TransactionType.WITHDRAW, amount));
+
+        if (cardRepository.debitIfSufficient(cardId, amount) == 0) {
+            throw new OperationRejectedException(OperationOutcome.INSUFFICIENT_BALANCE, "Insufficient balance");
+        }
 
-        return dto;
+        Transaction tx = new Transaction();
+        tx.setCard(cardRepository.getReferenceById(cardId));
+        tx.setAmount(amount);
+        tx.setType(TransactionType.WITHDRAW);
+        tx.setDirection(TransactionDirection.DEBIT);
+        tx.setTimestamp(LocalDateTime.now());
+        tx.setDescription(description);
+        transactionRepository.save(tx);
+
+        return new WithdrawResponseDto(tx.getId(), view.getCardNumber().value(), tx.getType(),
+                tx.getAmount(), tx.getTimestamp(), tx.getDescription());
     }
 
     /**
-     * Выполняет перевод средств между двумя картами одного пользователя.
+     * Переводит средства между картами в рамках текущей транзакции.
+     * Карты блокируются в порядке возрастания идентификатора, чтобы встречные переводы не взаимоблокировались.
      *
      * @param fromCardId  идентификатор карты отправителя
      * @param toCardId    идентификатор карты получателя
+     * @param user        текущий пользователь
      * @param amount      сумма перевода
      * @param description описание операции (опционально)
      * @return DTO с деталями перевода
      */
-    @Transactional
-    public TransferResponseDto transfer(Long fromCardId, Long toCardId, BigDecimal amount, String description) {
-        User user = authService.getCurrentUser();
+    private TransferResponseDto doTransfer(Long fromCardId, Long toCardId, User user,
+                                           BigDecimal amount, String description) {
+        boolean fromFirst = fromCardId < toCardId;
+        Card firstCard = getCardForCurrentUser(fromFirst ? fromCardId : toCardId, user);
+        Card secondCard = getCardForCurrentUser(fromFirst ? toCardId : fromCardId, user);
 
-        if (fromCardId.equals(toCardId)) {
-            throw new IllegalArgumentException("Cannot transfer to the same card");
-        }
-
-        Card fromCard = getCardForCurrentUser(fromCardId, user);
-        Card toCard = getCardForCurrentUser(toCardId, user);
+        Card fromCard = fromFirst ? firstCard : secondCard;
+        Card toCard = fromFirst ? secondCard : firstCard;
 
         validateCard(fromCard);
         validateCard(toCard);
 
         if (fromCard.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
+            throw new OperationRejectedException(OperationOutcome.INSUFFICIENT_BALANCE, "Insufficient balance");
         }
+        metrics.limitCheck(OperationMetrics.TRANSFER,
+                () -> limitEvaluator.checkAndRecord(fromCard.getId(), user.getId(), TransactionType.TRANSFER, amount));
 
         fromCard.setBalance(fromCard.getBalance().subtract(amount));
         toCard.setBalance(toCard.getBalance().add(amount));
@@ -184,6 +459,7 @@ public class TransactionService {
         txFrom.setCard(fromCard);
         txFrom.setAmount(amount);
         txFrom.setType(TransactionType.TRANSFER);
+        txFrom.setDirection(TransactionDirection.DEBIT);
         txFrom.setTimestamp(LocalDateTime.now());
         txFrom.setDescription("Transfer to card #" + toCard.getCardNumber() + " — " + description);
         transactionRepository.save(txFrom);
@@ -192,27 +468,144 @@ public class TransactionService {
         txTo.setCard(toCard);
         txTo.setAmount(amount);
         txTo.setType(TransactionType.TRANSFER);
+        txTo.setDirection(TransactionDirection.CREDIT);
         txTo.setTimestamp(LocalDateTime.now());
         txTo.setDescription("Received from card #" + fromCard.getCardNumber() + " — " + description);
         transactionRepository.save(txTo);
 
         return new TransferResponseDto(
                 "Transfer completed successfully",
-                maskCardNumber(fromCard.getCardNumber()),
-                maskCardNumber(toCard.getCardNumber()),
+                maskCardNumber(fromCard.getLast4()),
+                maskCardNumber(toCard.getLast4()),
                 amount, description
         );
     }
 
+    /**
+     * Выполняет пакет переводов в рамках текущей транзакции.
+     * Все карты пакета блокируются одним запросом в порядке возрастания идентификатора.
+     * Балансы пересчитываются в памяти, и каждая карта обновляется один раз итоговым значением;
+     * записи журнала вставляются пакетами JDBC (hibernate.jdbc.batch_size).
+     *
+     * @param transfers переводы в порядке выполнения
+     * @param user      текущий пользователь
+     * @return результат по каждому переводу
+     */
+    private BatchTransferResponseDto doTransferBatch(List<TransferRequestDto> transfers, User user) {
+        List<Long> cardIds = transfers.stream()
+                .flatMap(t -> Stream.of(t.getFromCardId(), t.getToCardId()))
+                .distinct()
+                .sorted()
+                .toList();
+        Map<Long, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds, user.getId())) {
+            cards.put(card.getId(), card);
+        }
+
+        LimitEvaluator.Batch limits = metrics.limitCheck(OperationMetrics.TRANSFER_BATCH,
+                () -> limitEvaluator.startBatch(transfers.stream()
+                        .map(TransferRequestDto::getFromCardId)
+                        .filter(cards::containsKey)
+                        .collect(Collectors.toSet()), user.getId(), TransactionType.TRANSFER));
+
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        List<Transaction> ledger = new ArrayList<>(transfers.size() * 2);
+        List<BatchTransferItemResultDto> results = new ArrayList<>(transfers.size());
+        LocalDateTime now = LocalDateTime.now();
+        int completed = 0;
+
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestDto transfer = transfers.get(i);
+            BigDecimal amount = transfer.getAmount();
+            String description = transfer.getDescription();
+            try {
+                if (transfer.getFromCardId().equals(transfer.getToCardId())) {
+                    throw new IllegalArgumentException("Cannot transfer to the same card");
+                }
+                Card fromCard = getBatchCard(cards, transfer.getFromCardId());
+                Card toCard = getBatchCard(cards, transfer.getToCardId());
+                validateCard(fromCard);
+                validateCard(toCard);
+
+                BigDecimal fromBalance = balances.getOrDefault(fromCard.getId(), fromCard.getBalance());
+                if (fromBalance.compareTo(amount) < 0) {
+                    throw new OperationRejectedException(OperationOutcome.INSUFFICIENT_BALANCE, "Insufficient balance");
+                }
+                limits.checkAndRecord(fromCard.getId(), amount);
+                balances.put(fromCard.getId(), fromBalance.subtract(amount));
+                balances.put(toCard.getId(), balances.getOrDefault(toCard.getId(), toCard.getBalance()).add(amount));
+
+                ledger.add(ledgerEntry(fromCard, TransactionDirection.DEBIT, amount, now,
+                        "Transfer to card #" + toCard.getCardNumber() + " — " + description));
+                ledger.add(ledgerEntry(toCard, TransactionDirection.CREDIT, amount, now,
+                        "Received from card #" + fromCard.getCardNumber() + " — " + description));
+
+                results.add(new BatchTransferItemResultDto(i, true, null, new TransferResponseDto(
+                        "Transfer completed successfully",
+                        maskCardNumber(fromCard.getLast4()),
+                        maskCardNumber(toCard.getLast4()),
+                        amount, description)));
+                completed++;
+                metrics.batchItem(OperationOutcome.OK);
+            } catch (IllegalArgumentException | IllegalStateException | AccessDeniedException e) {
+                results.add(new BatchTransferItemResultDto(i, false, e.getMessage(), null));
+                metrics.batchItem(OperationOutcome.of(e));
+            }
+        }
+
+        balances.forEach((cardId, balance) -> cards.get(cardId).setBalance(balance));
+        transactionRepository.saveAll(ledger);
+        limits.flush();
+
+        return new BatchTransferResponseDto(completed, transfers.size() - completed, results);
+    }
+
+    /**
+     * Возвращает заблокированную карту пакета.
+     * Заблокированы только карты текущего пользователя, поэтому чужая карта не отличается от несуществующей.
+     *
+     * @param cards  заблокированные карты пакета
+     * @param cardId идентификатор карты
+     * @return карта
+     */
+    private Card getBatchCard(Map<Long, Card> cards, Long cardId) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new OperationRejectedException(OperationOutcome.NOT_FOUND, "Card not found");
+        }
+        return card;
+    }
+
+    /**
+     * Создаёт запись журнала о переводе по карте.
+     *
+     * @param card        карта
+     * @param direction   направление движения средств по карте
+     * @param amount      сумма перевода
+     * @param timestamp   время операции
+     * @param description описание операции
+     * @return новая транзакция
+     */
+    private Transaction ledgerEntry(Card card, TransactionDirection direction, BigDecimal amount,
+                                    LocalDateTime timestamp, String description) {
+        Transaction tx = new Transaction();
+        tx.setCard(card);
+        tx.setAmount(amount);
+        tx.setType(TransactionType.TRANSFER);
+        tx.setDirection(direction);
+        tx.setTimestamp(timestamp);
+        tx.setDescription(description);
+        return tx;
+    }
+
     /**
      * Маскирует номер карты, оставляя видимыми только последние 4 цифры.
      *
-     * @param number полный номер карты
+     * @param last4 последние четыре цифры номера карты
      * @return маскированный номер карты
      */
-    private String maskCardNumber(String number) {
-        return "**** **** **** " +
-                number.substring(number.length() - 4);
+    private String maskCardNumber(String last4) {
+        return "**** **** **** " + last4;
     }
 
     /**
@@ -221,57 +614,39 @@ public class TransactionService {
      * @param card карта для проверки
      */
     private void validateCard(Card card) {
-        if (card.getStatus().equals(CardStatus.BLOCKED)) {
-            throw new IllegalStateException("Card is blocked");
-        }
-        if (card.getExpirationDate().isBefore(LocalDate.now())) {
-            throw new IllegalStateException("Card is expired");
-        }
+        validateCard(card.getStatus(), card.getExpirationDate());
     }
 
     /**
-     * Проверяет превышение дневного лимита снятия средств.
+     * Проверяет статус и срок действия карты.
+     * Операции разрешены только по картам в статусе ACTIVE, как и в условном UPDATE режима ATOMIC,
+     * поэтому все режимы блокировки отклоняют карту одинаково.
      *
-     * @param card      карта, с которой производится снятие
-     * @param newAmount сумма новой операции
+     * @param status         статус карты
+     * @param expirationDate дата окончания срока действия
      */
-    private void validateLimit(Card card, BigDecimal newAmount) {
-        Limit limit = limitRepository.findByName("daily_limit");
-
-
-        if (limit == null) {
-            limit = new Limit();
-            limit.setName("daily_limit");
-            limit.setLimitValue(BigDecimal.valueOf(1000000.00));
-            limit = limitRepository.save(limit);
+    private void validateCard(CardStatus status, LocalDate expirationDate) {
+        if (status.equals(CardStatus.BLOCKED)) {
+            throw new CardStateException(OperationOutcome.BLOCKED, "Card is blocked");
         }
-
-        BigDecimal dailyLimit = limit.getLimitValue();
-        // Сумма всех операций WITHDRAW по этой карте за сегодняшний день
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(23, 59, 59);
-
-        BigDecimal totalWithdrawToday = transactionRepository
-                .sumWithdrawalsByCardAndDateRange(card, startOfDay, endOfDay)
-                .orElse(BigDecimal.ZERO);
-
-        BigDecimal projectedTotal = totalWithdrawToday.add(newAmount);
-
-        if (projectedTotal.compareTo(dailyLimit) > 0) {
-            throw new IllegalArgumentException("Daily withdrawal limit exceeded");
+        if (status != CardStatus.ACTIVE || expirationDate.isBefore(LocalDate.now())) {
+            throw new CardStateException(OperationOutcome.EXPIRED, "Card is expired");
         }
     }
 
     /**
      * Получает карту по идентификатору и проверяет право доступа текущего пользователя.
+     * Во всех режимах, кроме OPTIMISTIC, строка карты блокируется до конца транзакции.
      *
      * @param cardId идентификатор карты
      * @param user   текущий пользователь
      * @return найденная карта
      */
     private Card getCardForCurrentUser(Long cardId, User user) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        Card card = (lockMode != BalanceLockMode.OPTIMISTIC
+                ? cardRepository.findByIdForUpdate(cardId)
+                : cardRepository.findById(cardId))
+                .orElseThrow(() -> new OperationRejectedException(OperationOutcome.NOT_FOUND, "Card not found"));
 
         if (!card.getOwner().getId().equals(user.getId())) {
             throw new AccessDeniedException("You can't access someone else's card");
@@ -279,6 +654,91 @@ public class TransactionService {
         return card;
     }
 
+    /**
+     * Проверяет, что текущий пользователь может просматривать транзакции карты.
+     *
+     * @param cardId идентификатор карты
+     * @throws IllegalArgumentException если карта не найдена
+     * @throws AccessDeniedException    если карта принадлежит другому пользователю
+     */
+    private void checkCardReadAccess(Long cardId) {
+        User currentUser = authService.getCurrentUser();
+        CardOperationView card = cardRepository.findOperationViewById(cardId)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+
+        if (!card.getOwnerId().equals(currentUser.getId()) && currentUser.getRole() != Role.ROLE_ADMIN) {
+            throw new AccessDeniedException("Access denied");
+        }
+    }
+
+    /**
+     * Создаёт параметры первой страницы заданного размера; смещение при просмотре по курсору всегда нулевое.
+     *
+     * @param limit размер порции
+     * @return параметры страницы
+     * @throws IllegalArgumentException если размер вне допустимого диапазона
+     */
+    private Pageable scrollPage(int limit) {
+        if (limit < 1 || limit > MAX_SCROLL_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SCROLL_LIMIT);
+        }
+        return PageRequest.of(0, limit);
+    }
+
+    /**
+     * Преобразует порцию транзакций в DTO с курсором следующей порции.
+     *
+     * @param slice порция транзакций
+     * @return DTO порции
+     */
+    private TransactionScrollResponseDto mapToScrollDto(Slice<Transaction> slice) {
+        List<Transaction> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Transaction last = content.get(content.size() - 1);
+            nextCursor = new TransactionCursor(last.getTimestamp(), last.getId()).toString();
+        }
+        return new TransactionScrollResponseDto(content.stream().map(this::mapToDto).toList(), slice.hasNext(), nextCursor);
+    }
+
+    /**
+     * Записывает одну транзакцию в формате выгрузки.
+     *
+     * @param writer поток вывода
+     * @param format формат выгрузки
+     * @param dto    транзакция
+     */
+    private void writeExportLine(Writer writer, ExportFormat format, TransactionResponseDto dto) {
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(dto.getId() + "," + dto.getCardNumber() + "," + dto.getType() + ","
+                        + dto.getAmount().toPlainString() + "," + dto.getTimestamp() + ","
+                        + csvValue(dto.getDescription()));
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Экранирует значение для CSV: значения с запятыми, кавычками и переводами строк заключаются в кавычки.
+     *
+     * @param value значение (может быть null)
+     * @return значение для записи в CSV
+     */
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     /**
      * Преобразует сущность транзакции в DTO с маскировкой номера карты.
      *
@@ -286,10 +746,18 @@ public class TransactionService {
      * @return DTO транзакции
      */
     public TransactionResponseDto mapToDto(Transaction tx) {
-        TransactionResponseDto dto = modelMapper.map(tx, TransactionResponseDto.class);
-        dto.setCardNumber(maskCardNumber(tx.getCard().getCardNumber()));
-
-        return dto;
+        return new TransactionResponseDto(tx.getId(), maskCardNumber(tx.getCard().getLast4()), tx.getType(),
+                tx.getAmount(), tx.getTimestamp(), tx.getDescription());
     }
 
+    /**
+     * Преобразует проекцию транзакции из списка в DTO с маскировкой номера карты.
+     *
+     * @param tx проекция транзакции
+     * @return DTO транзакции
+     */
+    public TransactionResponseDto mapToDto(TransactionListView tx) {
+        return new TransactionResponseDto(tx.id(), maskCardNumber(tx.last4()), tx.type(),
+                tx.amount(), tx.timestamp(), tx.description());
+    }
 }
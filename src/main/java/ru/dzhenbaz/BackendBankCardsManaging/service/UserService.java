@@ -7,6 +7,8 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalCache;
+import ru.dzhenbaz.BackendBankCardsManaging.security.TokenVersionRegistry;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,10 +22,15 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersions;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PrincipalCache principalCache,
+                       TokenVersionRegistry tokenVersions) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.tokenVersions = tokenVersions;
     }
 
     /**
@@ -52,6 +59,8 @@ public class UserService {
     /**
      * Изменяет роль пользователя.
      * Проверяет, чтобы администратор не мог изменить свою собственную роль на не-администратора.
+     * В той же транзакции повышается версия токенов пользователя, что после фиксации отзывает его токены
+     * с прежней ролью через {@link TokenVersionRegistry}, а сам пользователь удаляется из кэша аутентификации, чтобы новая роль применилась к следующему запросу.
      * Доступно только администраторам.
      *
      * @param userId      идентификатор пользователя
@@ -73,7 +82,10 @@ public class UserService {
         }
 
         targetUser.setRole(newRole);
+        targetUser.setTokenVersion(targetUser.getTokenVersion() + 1);
         userRepository.save(targetUser);
+        tokenVersions.raise(targetUser.getId(), targetUser.getTokenVersion());
+        principalCache.evict(targetUser.getEmail());
     }
 
 }
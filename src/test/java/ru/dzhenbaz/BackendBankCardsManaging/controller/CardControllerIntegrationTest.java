@@ -7,10 +7,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.CardCreateRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.CardLookupRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.RegisterRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
@@ -18,11 +20,15 @@ import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberHasher;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.CardNumberBackfillService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -48,6 +54,15 @@ public class CardControllerIntegrationTest {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private CardNumberHasher cardNumberHasher;
+
+    @Autowired
+    private CardNumberBackfillService backfillService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private String userToken;
     private String adminToken;
     private Long adminId;
@@ -138,6 +153,47 @@ public class CardControllerIntegrationTest {
                 .andExpect(jsonPath("$.content[0].maskedCardNumber").value("**** **** **** 3456"));
     }
 
+    @Test
+    void cardsSliceReportsHasNextWithoutTotals() throws Exception {
+        User user = userRepository.findUserByEmail("user@test.com").get();
+        for (String number : new String[]{"1111222233334444", "5555666677778888", "9999000011112222"}) {
+            Card card = new Card();
+            card.setOwner(user);
+            card.setCardNumber(number);
+            card.setBalance(BigDecimal.valueOf(100));
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            cardRepository.save(card);
+        }
+
+        mockMvc.perform(get("/cards/slice")
+                        .header("Authorization", userToken)
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        mockMvc.perform(get("/cards/slice")
+                        .header("Authorization", userToken)
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/cards/count")
+                        .header("Authorization", adminToken)
+                        .param("status", "ACTIVE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.approximateTotal").value(3))
+                .andExpect(jsonPath("$.countedAt").exists());
+
+        mockMvc.perform(get("/cards/count")
+                        .header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void userCanBlockOnlyOwnCardAndCannotSetOtherStatuses() throws Exception {
 
@@ -173,4 +229,58 @@ public class CardControllerIntegrationTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("You are only allowed to block your own cards."));
     }
+
+    @Test
+    void adminCanLookupCardByNumber() throws Exception {
+        User user = userRepository.findUserByEmail("user@test.com").get();
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("1234567890123456");
+        card.setBalance(BigDecimal.valueOf(700));
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card = cardRepository.save(card);
+
+        assertEquals(cardNumberHasher.hash("1234567890123456"), card.getCardNumberHash());
+
+        mockMvc.perform(post("/cards/lookup")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardLookupRequestDto("1234567890123456"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(card.getId()))
+                .andExpect(jsonPath("$.maskedCardNumber").value("**** **** **** 3456"));
+
+        mockMvc.perform(post("/cards/lookup")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardLookupRequestDto("1111222233334444"))))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/cards/lookup")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardLookupRequestDto("1234567890123456"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void missingCardNumberHashAndLast4AreBackfilled() {
+        User user = userRepository.findUserByEmail("user@test.com").get();
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("1234567890123456");
+        card.setBalance(BigDecimal.valueOf(700));
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card = cardRepository.save(card);
+        jdbcTemplate.update("UPDATE cards SET card_number_hash = NULL, last4 = NULL WHERE id = ?", card.getId());
+
+        assertEquals(1, backfillService.backfill());
+        Card backfilled = cardRepository.findById(card.getId()).orElseThrow();
+        assertEquals(cardNumberHasher.hash("1234567890123456"), backfilled.getCardNumberHash());
+        assertEquals("3456", backfilled.getLast4());
+    }
 }
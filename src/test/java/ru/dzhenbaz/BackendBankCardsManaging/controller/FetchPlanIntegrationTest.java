@@ -0,0 +1,163 @@
+package ru.dzhenbaz.BackendBankCardsManaging.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionCursor;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.CardService;
+import ru.dzhenbaz.BackendBankCardsManaging.service.TransactionService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет, что количество SQL-запросов и загруженных сущностей на эндпоинт
+ * не зависит от объёма истории транзакций по карте, списки не загружают сущности карт и транзакций,
+ * а маппинг сущностей не расшифровывает номера карт.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FetchPlanIntegrationTest {
+
+    private static final int LARGE_HISTORY = 100_000;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private CardService cardService;
+    @Autowired private TransactionService transactionService;
+
+    private Statistics statistics;
+    private String userToken;
+    private Long userId;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        User user = new User();
+        user.setEmail("history@test.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+        userId = user.getId();
+        userToken = "Bearer " + jwtUtil.generateToken(user.getEmail());
+
+        for (String number : new String[]{"1212343456567878", "8787656543432121"}) {
+            Card card = new Card();
+            card.setOwner(user);
+            card.setCardNumber(number);
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.valueOf(1000));
+            cardRepository.save(card);
+            cardId = card.getId();
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void cleanDb() {
+        if (statistics != null) {
+            statistics.setStatisticsEnabled(false);
+        }
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void statementsAndLoadedRowsDoNotGrowWithHistory() throws Exception {
+        seedHistory(10);
+        long[] cardsSmall = measure(get("/cards").header("Authorization", userToken));
+        long[] historySmall = measure(get("/transactions/cards/" + cardId).header("Authorization", userToken));
+        long[] allSmall = measure(get("/transactions").header("Authorization", userToken));
+
+        seedHistory(LARGE_HISTORY);
+        long[] cardsLarge = measure(get("/cards").header("Authorization", userToken));
+        long[] historyLarge = measure(get("/transactions/cards/" + cardId).header("Authorization", userToken));
+        long[] allLarge = measure(get("/transactions").header("Authorization", userToken));
+
+        assertArrayEquals(cardsSmall, cardsLarge);
+        assertArrayEquals(historySmall, historyLarge);
+        assertArrayEquals(allSmall, allLarge);
+
+        // Списки читают проекции: загружается только пользователь из JWT-фильтра
+        assertEquals(1, cardsLarge[1]);
+        assertEquals(1, historyLarge[1]);
+        assertEquals(1, allLarge[1]);
+    }
+
+    @Test
+    void listMappingsDoNotDecryptCardNumbers() {
+        seedHistory(10);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Card card : cardRepository.findAllByOwnerId(userId)) {
+                assertEquals("**** **** **** " + card.getLast4(), cardService.mapToCardDto(card).getMaskedCardNumber());
+                assertNotDecrypted(card);
+            }
+            for (Transaction tx : transactionRepository.scrollByCardId(cardId, TransactionCursor.START.timestamp(),
+                    TransactionCursor.START.id(), PageRequest.of(0, 10))) {
+                assertEquals("**** **** **** 2121", transactionService.mapToDto(tx).getCardNumber());
+                assertNotDecrypted(tx.getCard());
+            }
+        });
+    }
+
+    private void assertNotDecrypted(Card card) {
+        Object cardNumber = ReflectionTestUtils.getField(card, "cardNumber");
+        assertNull(ReflectionTestUtils.getField(cardNumber, "plain"));
+    }
+
+    /**
+     * Выполняет запрос и возвращает количество подготовленных SQL-запросов и загруженных сущностей.
+     * Кэш второго уровня очищается, чтобы замеры не зависели от предыдущих запросов.
+     */
+    private long[] measure(RequestBuilder request) throws Exception {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return new long[]{statistics.getPrepareStatementCount(), statistics.getEntityLoadCount()};
+    }
+
+    private void seedHistory(int count) {
+        jdbcTemplate.update("INSERT INTO transactions (card_id, type, direction, amount, timestamp, description) " +
+                "SELECT ?, 'WITHDRAW', 'DEBIT', 1, CURRENT_TIMESTAMP, 'seed' FROM SYSTEM_RANGE(1, ?)", cardId, count);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.dzhenbaz.BackendBankCardsManaging.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,14 +10,30 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LimitRuleRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRuleRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.LimitRegistry;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -31,16 +48,21 @@ public class LimitControllerIntegrationTest {
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private JwtUtil jwtUtil;
     @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+    @Autowired private LimitRuleRepository limitRuleRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private ObjectMapper objectMapper;
 
     private String userToken;
     private String adminToken;
+    private User user;
 
     @BeforeEach
     void setup() {
-        limitRepository.deleteAll();
-        userRepository.deleteAll();
+        cleanDb();
 
-        User user = new User();
+        user = new User();
         user.setEmail("user@test.com");
         user.setPassword(passwordEncoder.encode("password"));
         user.setRole(Role.ROLE_USER);
@@ -56,6 +78,16 @@ public class LimitControllerIntegrationTest {
         adminToken = "Bearer " + jwtUtil.generateToken(admin.getEmail());
     }
 
+    @AfterEach
+    void cleanDb() {
+        limitRuleRepository.deleteAll();
+        limitRepository.deleteAll();
+        limitRegistry.refresh();
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
     @Test
     void userCanViewDailyLimit() throws Exception {
         mockMvc.perform(get("/limits/daily")
@@ -91,4 +123,113 @@ public class LimitControllerIntegrationTest {
                                 """))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    void updatedLimitIsServedFromMemoryAndExternalChangesArePolled() throws Exception {
+        mockMvc.perform(post("/limits/daily")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "newValue": 2500.00
+                                }
+                                """))
+                .andExpect(status().isOk());
+        assertEquals(0, BigDecimal.valueOf(2500).compareTo(limitRegistry.getDailyLimit()));
+
+        // Изменение, сделанное другим экземпляром приложения, видно только после проверки версии
+        Limit limit = limitRepository.findByName(LimitRegistry.DAILY_LIMIT);
+        limit.setLimitValue(BigDecimal.valueOf(3000));
+        limitRepository.save(limit);
+        assertEquals(0, BigDecimal.valueOf(2500).compareTo(limitRegistry.getDailyLimit()));
+
+        limitRegistry.pollVersion();
+        mockMvc.perform(get("/limits/daily")
+                        .header("Authorization", userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(3000.00));
+    }
+
+    @Test
+    void limitRulesOverrideGlobalLimitsAndAreEnforcedOnWithdraw() throws Exception {
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("5555444433332222");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(10_000));
+        cardRepository.save(card);
+
+        saveRule(new LimitRuleRequestDto(TransactionType.WITHDRAW, LimitPeriod.WEEKLY, null, user.getId(),
+                BigDecimal.valueOf(700)));
+        String cardRule = saveRule(new LimitRuleRequestDto(TransactionType.WITHDRAW, LimitPeriod.TRANSACTION,
+                card.getId(), null, BigDecimal.valueOf(500)));
+
+        mockMvc.perform(get("/limits/cards/" + card.getId())
+                        .header("Authorization", userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].period").value("TRANSACTION"))
+                .andExpect(jsonPath("$[0].scope").value("CARD"))
+                .andExpect(jsonPath("$[1].period").value("DAILY"))
+                .andExpect(jsonPath("$[1].scope").value("GLOBAL"))
+                .andExpect(jsonPath("$[2].period").value("WEEKLY"))
+                .andExpect(jsonPath("$[2].scope").value("USER"));
+
+        withdraw(card.getId(), 600)
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString(
+                        "Per-transaction withdrawal limit exceeded")));
+        withdraw(card.getId(), 400).andExpect(status().isOk());
+        withdraw(card.getId(), 400)
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString(
+                        "Weekly withdrawal limit exceeded")));
+
+        mockMvc.perform(delete("/limits/rules/" + objectMapper.readTree(cardRule).get("id").asLong())
+                        .header("Authorization", adminToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/limits/rules")
+                        .param("userId", user.getId().toString())
+                        .header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].maxAmount").value(700));
+        withdraw(card.getId(), 300).andExpect(status().isOk());
+    }
+
+    @Test
+    void invalidOrUnauthorizedRuleChangesAreRejected() throws Exception {
+        String globalDaily = objectMapper.writeValueAsString(new LimitRuleRequestDto(
+                TransactionType.WITHDRAW, LimitPeriod.DAILY, null, null, BigDecimal.valueOf(100)));
+
+        mockMvc.perform(post("/limits/rules")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(globalDaily))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/limits/rules")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LimitRuleRequestDto(
+                                TransactionType.TRANSFER, LimitPeriod.DAILY, null, user.getId(), BigDecimal.TEN))))
+                .andExpect(status().isForbidden());
+    }
+
+    private String saveRule(LimitRuleRequestDto request) throws Exception {
+        return mockMvc.perform(post("/limits/rules")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private ResultActions withdraw(Long cardId, long amount) throws Exception {
+        return mockMvc.perform(post("/transactions/withdraw")
+                .header("Authorization", userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new WithdrawRequestDto(cardId, BigDecimal.valueOf(amount),
+                        "ATM"))));
+    }
 }
@@ -0,0 +1,135 @@
+package ru.dzhenbaz.BackendBankCardsManaging.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.LimitRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет, что метрики операций с деньгами, шифрования номеров карт и количества SQL-запросов
+ * на HTTP-запрос публикуются на эндпоинте Prometheus.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class MetricsIntegrationTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+
+    private String userToken;
+    private String adminToken;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        User user = new User();
+        user.setEmail("metrics@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+
+        User admin = new User();
+        admin.setEmail("metrics-admin@test.com");
+        admin.setPassword("password");
+        admin.setRole(Role.ROLE_ADMIN);
+        userRepository.save(admin);
+
+        userToken = "Bearer " + jwtUtil.generateToken(user.getEmail());
+        adminToken = "Bearer " + jwtUtil.generateToken(admin.getEmail());
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("4000111122223333");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(1000));
+        cardRepository.save(card);
+        cardId = card.getId();
+
+        // Снятие сверх баланса не должно упираться в дневной лимит, оставленный другими тестами
+        Limit limit = limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT);
+        limit.setLimitValue(BigDecimal.valueOf(1_000_000));
+        limitRepository.save(limit);
+        limitRegistry.refresh();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void moneyMovementMetricsArePublishedToPrometheus() throws Exception {
+        withdraw("100.00").andExpect(status().isOk());
+        withdraw("5000.00").andExpect(status().isBadRequest());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus").header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(1.0, value(scrape, "bank_operation_seconds_count{operation=\"withdraw\",outcome=\"ok\"}"));
+        assertEquals(1.0, value(scrape,
+                "bank_operation_seconds_count{operation=\"withdraw\",outcome=\"insufficient_balance\"}"));
+        assertTrue(scrape.contains("bank_operation_seconds_bucket{operation=\"withdraw\",outcome=\"ok\""));
+        assertEquals(2.0, value(scrape, "bank_operation_limit_check_seconds_count{operation=\"withdraw\"}"));
+        assertEquals(100.0, value(scrape, "bank_operation_amount_total{operation=\"withdraw\"}"));
+        assertTrue(value(scrape, "card_number_cipher_seconds_count{operation=\"encrypt\"}") >= 1.0);
+
+        assertEquals(2.0, value(scrape,
+                "http_server_requests_db_statements_count{method=\"POST\",uri=\"/transactions/withdraw\"}"));
+        assertTrue(value(scrape,
+                "http_server_requests_db_statements_sum{method=\"POST\",uri=\"/transactions/withdraw\"}") > 0);
+    }
+
+    private ResultActions withdraw(String amount) throws Exception {
+        return mockMvc.perform(post("/transactions/withdraw")
+                .header("Authorization", userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"cardId": %d, "amount": %s, "description": "Metrics"}
+                        """.formatted(cardId, amount)));
+    }
+
+    private static double value(String scrape, String series) {
+        Matcher matcher = Pattern.compile("^" + Pattern.quote(series) + " (\\S+)$", Pattern.MULTILINE).matcher(scrape);
+        assertTrue(matcher.find(), "Missing series " + series);
+        return Double.parseDouble(matcher.group(1));
+    }
+}
@@ -0,0 +1,84 @@
+package ru.dzhenbaz.BackendBankCardsManaging.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.ChangeRoleRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет аутентификацию запросов через включённый кэш пользователей:
+ * повторные запросы не обращаются к базе данных, а смена роли применяется к следующему запросу.
+ */
+@SpringBootTest(properties = "security.principal-cache.enabled=true")
+@AutoConfigureMockMvc
+public class PrincipalCacheIntegrationTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private MeterRegistry meterRegistry;
+
+    private String userToken;
+    private String adminToken;
+    private Long userId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        User admin = new User();
+        admin.setEmail("cache-admin@test.com");
+        admin.setPassword("password");
+        admin.setRole(Role.ROLE_ADMIN);
+        userRepository.save(admin);
+        adminToken = "Bearer " + jwtUtil.generateToken(admin.getEmail());
+
+        User user = new User();
+        user.setEmail("cache-user@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+        userId = user.getId();
+        userToken = "Bearer " + jwtUtil.generateToken(user.getEmail());
+    }
+
+    @AfterEach
+    void cleanDb() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void roleChangeAppliesToNextRequestDespiteCachedPrincipal() throws Exception {
+        mockMvc.perform(get("/users").header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/users").header("Authorization", userToken))
+                .andExpect(status().isForbidden());
+        assertTrue(meterRegistry.get("security.principal.db.lookups.saved").functionCounter().count() >= 1);
+
+        mockMvc.perform(post("/users/" + userId + "/role")
+                        .header("Authorization", adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChangeRoleRequestDto(Role.ROLE_ADMIN))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users").header("Authorization", userToken))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,258 @@
+package ru.dzhenbaz.BackendBankCardsManaging.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.dzhenbaz.BackendBankCardsManaging.BackendBankCardsManagingApplication;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Нагрузочное сравнение обработки запросов на платформенных потоках Tomcat и на виртуальных потоках
+ * (профиль virtual-threads). Каждый SQL-запрос задерживается, имитируя медленный PostgreSQL,
+ * размер пула соединений в обоих режимах одинаковый. Для эндпоинтов перевода и списка карт
+ * выводит p50/p99 задержки и проверяет максимальное количество одновременно обрабатываемых запросов.
+ * Режим виртуальных потоков проверяется только при запуске на Java 21+.
+ * Тест помечен тегом performance и выполняется только в профиле performance.
+ */
+@Tag("performance")
+public class RequestThreadingLoadIntegrationTest {
+
+    private static final int CLIENTS = 400;
+    private static final int USERS = 200;
+    private static final int POOL_SIZE = 40;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long STATEMENT_LATENCY_MS = 10;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final InFlightFilter inFlight = new InFlightFilter();
+
+    private String baseUrl;
+    private final List<String> tokens = new ArrayList<>();
+    private final List<Long[]> cardPairs = new ArrayList<>();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void transferAndListingUnderSlowDatabase(boolean virtualThreads) throws Exception {
+        assumeTrue(!virtualThreads || Runtime.version().feature() >= 21, "Virtual threads require Java 21+");
+
+        FilterRegistrationBean<InFlightFilter> registration = new FilterRegistrationBean<>(inFlight);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                new SpringApplicationBuilder(BackendBankCardsManagingApplication.class)
+                        .profiles(virtualThreads ? new String[]{"virtual-threads"} : new String[0])
+                        .initializers(ctx -> ctx.getBeanFactory().registerSingleton("inFlightFilter", registration))
+                        .run("--server.port=0",
+                                "--server.tomcat.threads.max=" + TOMCAT_MAX_THREADS,
+                                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                                // Очередь за соединением в тесте длиннее таймаута профиля, рассчитанного на отказ без ожидания
+                                "--spring.datasource.hikari.connection-timeout=60000",
+                                "--spring.jpa.show-sql=false",
+                                "--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                        + SlowStatementInspector.class.getName());
+        try {
+            baseUrl = "http://localhost:" + context.getWebServer().getPort();
+            seed(context);
+
+            run(i -> get("/cards", i), 50);
+            run(i -> transfer(i), 50);
+            SlowStatementInspector.latencyMillis = STATEMENT_LATENCY_MS;
+
+            String mode = virtualThreads ? "virtual" : "platform";
+            int transfersInFlight = report(mode, "POST /transactions/transfer", run(i -> transfer(i), CLIENTS));
+            int listingInFlight = report(mode, "GET /cards", run(i -> get("/cards", i), CLIENTS));
+
+            if (virtualThreads) {
+                // Запросы не ждут свободного потока: параллельность ограничивает только пул соединений
+                assertTrue(transfersInFlight > TOMCAT_MAX_THREADS, "In-flight: " + transfersInFlight);
+                assertTrue(listingInFlight > TOMCAT_MAX_THREADS, "In-flight: " + listingInFlight);
+            } else {
+                assertTrue(transfersInFlight <= TOMCAT_MAX_THREADS, "In-flight: " + transfersInFlight);
+                assertTrue(listingInFlight <= TOMCAT_MAX_THREADS, "In-flight: " + listingInFlight);
+            }
+        } finally {
+            SlowStatementInspector.latencyMillis = 0;
+            context.getBean(TransactionRepository.class).deleteAllInBatch();
+            context.getBean(CardRepository.class).deleteAll();
+            context.getBean(UserRepository.class).deleteAll();
+            context.close();
+        }
+    }
+
+    private void seed(ServletWebServerApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+
+        List<User> users = new ArrayList<>();
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("load" + i + "@test.com");
+            user.setPassword("password");
+            user.setRole(Role.ROLE_USER);
+            users.add(user);
+            for (int j = 0; j < 2; j++) {
+                Card card = new Card();
+                card.setOwner(user);
+                card.setCardNumber(String.format("5%03d%012d", j, i));
+                card.setExpirationDate(LocalDate.now().plusYears(2));
+                card.setStatus(CardStatus.ACTIVE);
+                card.setBalance(BigDecimal.valueOf(1_000_000));
+                cards.add(card);
+            }
+        }
+        userRepository.saveAll(users);
+        cardRepository.saveAll(cards);
+
+        for (int i = 0; i < USERS; i++) {
+            tokens.add("Bearer " + jwtUtil.generateToken(users.get(i).getEmail()));
+            cardPairs.add(new Long[]{cards.get(2 * i).getId(), cards.get(2 * i + 1).getId()});
+        }
+    }
+
+    private HttpRequest get(String path, int client) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", tokens.get(client % USERS))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest transfer(int client) {
+        Long[] pair = cardPairs.get(client % USERS);
+        String body = String.format("{\"fromCardId\":%d,\"toCardId\":%d,\"amount\":1.00}", pair[0], pair[1]);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/transactions/transfer"))
+                .header("Authorization", tokens.get(client % USERS))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Одновременно отправляет запросы от указанного количества клиентов и возвращает задержки в наносекундах.
+     */
+    private long[] run(IntFunction<HttpRequest> requests, int clients) throws Exception {
+        inFlight.reset();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < clients; i++) {
+                HttpRequest request = requests.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long startedAt = System.nanoTime();
+                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    assertEquals(200, response.statusCode(), response.body());
+                    return System.nanoTime() - startedAt;
+                }));
+            }
+            start.countDown();
+            long[] latencies = new long[clients];
+            for (int i = 0; i < clients; i++) {
+                latencies[i] = futures.get(i).get(120, TimeUnit.SECONDS);
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Выводит p50/p99 задержки и возвращает максимальное количество одновременно обрабатываемых запросов.
+     */
+    private int report(String mode, String endpoint, long[] latencies) {
+        Arrays.sort(latencies);
+        int maxInFlight = inFlight.max.get();
+        System.out.printf("%s threads, %s: p50 %d ms, p99 %d ms, max %d ms, max in-flight %d%n",
+                mode, endpoint,
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length / 2]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[(int) Math.ceil(latencies.length * 0.99) - 1]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length - 1]),
+                maxInFlight);
+        return maxInFlight;
+    }
+
+    /**
+     * Считает запросы, обрабатываемые приложением одновременно.
+     */
+    private static final class InFlightFilter extends OncePerRequestFilter {
+
+        private final AtomicInteger current = new AtomicInteger();
+        private final AtomicInteger max = new AtomicInteger();
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                current.decrementAndGet();
+            }
+        }
+
+        void reset() {
+            max.set(0);
+        }
+    }
+
+    /**
+     * Задерживает каждый SQL-запрос Hibernate, имитируя сетевую задержку и медленные ответы базы данных.
+     */
+    public static class SlowStatementInspector implements StatementInspector {
+
+        static volatile long latencyMillis;
+
+        @Override
+        public String inspect(String sql) {
+            long latency = latencyMillis;
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return sql;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package ru.dzhenbaz.BackendBankCardsManaging.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.BatchTransferRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransactionScrollResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.TransferRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
@@ -16,17 +23,25 @@ import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionDirection;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardDailyUsageRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.DailyUsageReconciliationService;
+import ru.dzhenbaz.BackendBankCardsManaging.service.IdempotencyService;
+import ru.dzhenbaz.BackendBankCardsManaging.service.LimitRegistry;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -42,6 +57,11 @@ public class TransactionControllerIntegrationTest {
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private JwtUtil jwtUtil;
     @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+    @Autowired private CardDailyUsageRepository dailyUsageRepository;
+    @Autowired private DailyUsageReconciliationService reconciliationService;
+    @Autowired private IdempotencyService idempotencyService;
+    @Autowired private JdbcTemplate jdbcTemplate;
 
     private String userToken;
     private String adminToken;
@@ -114,6 +134,7 @@ public class TransactionControllerIntegrationTest {
                                 """.formatted(userCardId1)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.amount").value(500.00))
+                .andExpect(jsonPath("$.cardNumber").value("1111222233334444"))
                 .andExpect(jsonPath("$.description").value("ATM"));
     }
 
@@ -144,6 +165,7 @@ public class TransactionControllerIntegrationTest {
         Limit limit = limitRepository.findByName("daily_limit");
         limit.setLimitValue(BigDecimal.valueOf(1000));
         limitRepository.save(limit);
+        limitRegistry.refresh();
 
         card.setBalance(BigDecimal.valueOf(2000));
         cardRepository.save(card);
@@ -158,6 +180,70 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("Daily withdrawal limit exceeded")));
     }
 
+    @Test
+    void dailyUsageIsMaintainedAndRebuiltFromTransactions() throws Exception {
+        Limit limit = limitRepository.findByName("daily_limit");
+        limit.setLimitValue(BigDecimal.valueOf(1000));
+        limitRepository.save(limit);
+        limitRegistry.refresh();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/transactions/withdraw")
+                            .header("Authorization", userToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(
+                                    new WithdrawRequestDto(userCardId1, BigDecimal.valueOf(400), "ATM"))))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(0, BigDecimal.valueOf(800).compareTo(dailyUsageRepository
+                .findByCardIdAndUsageDate(userCardId1, LocalDate.now()).orElseThrow().getWithdrawn()));
+
+        dailyUsageRepository.deleteAll();
+        assertEquals(1, reconciliationService.rebuild(LocalDate.now()));
+        assertEquals(0, BigDecimal.valueOf(800).compareTo(dailyUsageRepository
+                .findByCardIdAndUsageDate(userCardId1, LocalDate.now()).orElseThrow().getWithdrawn()));
+
+        mockMvc.perform(post("/transactions/withdraw")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new WithdrawRequestDto(userCardId1, BigDecimal.valueOf(300), "Over limit"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Daily withdrawal limit exceeded")));
+    }
+
+    @Test
+    void todaysDailyUsageDriftIsCorrectedFromTransactions() throws Exception {
+        mockMvc.perform(post("/transactions/withdraw")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new WithdrawRequestDto(userCardId1, BigDecimal.valueOf(400), "ATM"))))
+                .andExpect(status().isOk());
+        jdbcTemplate.update("UPDATE card_daily_usage SET withdrawn = 0 WHERE card_id = ?", userCardId1);
+
+        assertEquals(1, reconciliationService.correctToday());
+        assertEquals(0, BigDecimal.valueOf(400).compareTo(dailyUsageRepository
+                .findByCardIdAndUsageDate(userCardId1, LocalDate.now()).orElseThrow().getWithdrawn()));
+    }
+
+    @Test
+    void dailyUsageRebuildCountsOnlyOutgoingTransfers() throws Exception {
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new TransferRequestDto(userCardId1, userCardId2, BigDecimal.valueOf(150), "Savings"))))
+                .andExpect(status().isOk());
+
+        dailyUsageRepository.deleteAll();
+        assertEquals(1, reconciliationService.rebuild(LocalDate.now()));
+        assertEquals(0, BigDecimal.valueOf(150).compareTo(dailyUsageRepository
+                .findByCardIdAndUsageDate(userCardId1, LocalDate.now()).orElseThrow().getTransferred()));
+        assertTrue(dailyUsageRepository.findByCardIdAndUsageDate(userCardId2, LocalDate.now()).isEmpty());
+    }
+
     @Test
     void userCanTransferBetweenOwnCards() throws Exception {
         mockMvc.perform(post("/transactions/transfer")
@@ -193,6 +279,123 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void retriedWithdrawWithIdempotencyKeyDebitsOnce() throws Exception {
+        String body = objectMapper.writeValueAsString(
+                new WithdrawRequestDto(userCardId1, BigDecimal.valueOf(100), "Gateway retry"));
+
+        String first = mockMvc.perform(post("/transactions/withdraw")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "withdraw-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String retry = mockMvc.perform(post("/transactions/withdraw")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "withdraw-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, retry);
+        assertEquals(1, transactionRepository.count());
+        assertEquals(0, BigDecimal.valueOf(9900).compareTo(cardRepository.findById(userCardId1).orElseThrow().getBalance()));
+
+        mockMvc.perform(post("/transactions/withdraw")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "withdraw-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new WithdrawRequestDto(userCardId1, BigDecimal.valueOf(200), "Gateway retry"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void failedTransferReleasesIdempotencyKeyAndStoredResponseIsReplayed() throws Exception {
+        String tooMuch = objectMapper.writeValueAsString(
+                new TransferRequestDto(userCardId2, userCardId1, BigDecimal.valueOf(100), "Retry"));
+
+        // Ошибка не сохраняется: после пополнения карты тот же запрос с тем же ключом выполняется
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "transfer-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMuch))
+                .andExpect(status().isBadRequest());
+
+        Card card2 = cardRepository.findById(userCardId2).orElseThrow();
+        card2.setBalance(BigDecimal.valueOf(100));
+        cardRepository.save(card2);
+
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "transfer-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMuch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amount").value(100));
+
+        // Ответ, сохранённый в таблице, возвращается и при пустом кэше
+        jdbcTemplate.update("UPDATE cards SET balance = 0 WHERE id = ?", userCardId2);
+        idempotencyCacheReset();
+        mockMvc.perform(post("/transactions/transfer")
+                        .header("Authorization", userToken)
+                        .header("Idempotency-Key", "transfer-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMuch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toCardNumber").value("**** **** **** 4444"));
+
+        assertEquals(2, transactionRepository.count());
+    }
+
+    private void idempotencyCacheReset() {
+        Cache<?, ?> cache = (Cache<?, ?>) ReflectionTestUtils.getField(idempotencyService, "completed");
+        cache.invalidateAll();
+    }
+
+    @Test
+    void batchTransferAppliesItemsInOrderAndReportsRejections() throws Exception {
+        BatchTransferRequestDto request = new BatchTransferRequestDto(List.of(
+                new TransferRequestDto(userCardId1, userCardId2, BigDecimal.valueOf(9000), "Payroll"),
+                // Вторая карта пополнена предыдущим переводом пакета
+                new TransferRequestDto(userCardId2, userCardId1, BigDecimal.valueOf(500), "Back"),
+                new TransferRequestDto(userCardId1, userCardId2, BigDecimal.valueOf(2000), "Too much"),
+                new TransferRequestDto(userCardId1, adminCardId, BigDecimal.valueOf(10), "Foreign"),
+                new TransferRequestDto(userCardId1, userCardId1, BigDecimal.valueOf(10), "Same")));
+
+        mockMvc.perform(post("/transactions/transfer/batch")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(2))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[0].transfer.toCardNumber").value("**** **** **** 8888"))
+                .andExpect(jsonPath("$.results[1].success").value(true))
+                .andExpect(jsonPath("$.results[2].error").value("Insufficient balance"))
+                .andExpect(jsonPath("$.results[3].error").value("Card not found"))
+                .andExpect(jsonPath("$.results[4].error").value("Cannot transfer to the same card"));
+
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(cardRepository.findById(userCardId1).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(8500).compareTo(cardRepository.findById(userCardId2).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(cardRepository.findById(adminCardId).orElseThrow().getBalance()));
+        assertEquals(4, transactionRepository.count());
+    }
+
+    @Test
+    void batchTransferRejectsEmptyBatch() throws Exception {
+        mockMvc.perform(post("/transactions/transfer/batch")
+                        .header("Authorization", userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void userSeesOnlyOwnTransactions() throws Exception {
 
@@ -213,6 +416,7 @@ public class TransactionControllerIntegrationTest {
         tx.setCard(userCard);
         tx.setAmount(BigDecimal.valueOf(100));
         tx.setType(TransactionType.WITHDRAW);
+        tx.setDirection(TransactionDirection.DEBIT);
         tx.setTimestamp(LocalDateTime.now());
         tx.setDescription("User Transaction");
         transactionRepository.save(tx);
@@ -221,6 +425,7 @@ public class TransactionControllerIntegrationTest {
         tx2.setCard(adminCard);
         tx2.setAmount(BigDecimal.valueOf(500));
         tx2.setType(TransactionType.WITHDRAW);
+        tx2.setDirection(TransactionDirection.DEBIT);
         tx2.setTimestamp(LocalDateTime.now());
         tx2.setDescription("Admin Transaction");
         transactionRepository.save(tx2);
@@ -253,6 +458,7 @@ public class TransactionControllerIntegrationTest {
         tx1.setCard(userCard);
         tx1.setAmount(BigDecimal.valueOf(100));
         tx1.setType(TransactionType.WITHDRAW);
+        tx1.setDirection(TransactionDirection.DEBIT);
         tx1.setTimestamp(LocalDateTime.now());
         tx1.setDescription("User Transaction");
         transactionRepository.save(tx1);
@@ -261,6 +467,7 @@ public class TransactionControllerIntegrationTest {
         tx2.setCard(adminCard);
         tx2.setAmount(BigDecimal.valueOf(500));
         tx2.setType(TransactionType.WITHDRAW);
+        tx2.setDirection(TransactionDirection.DEBIT);
         tx2.setTimestamp(LocalDateTime.now());
         tx2.setDescription("Admin Transaction");
         transactionRepository.save(tx2);
@@ -270,4 +477,70 @@ public class TransactionControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content.length()").value(2));
     }
+
+    @Test
+    void userCanScrollCardHistoryByCursor() throws Exception {
+        Card card = cardRepository.findById(userCardId1).orElseThrow();
+        LocalDateTime base = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 5; i++) {
+            Transaction tx = new Transaction();
+            tx.setCard(card);
+            tx.setAmount(BigDecimal.valueOf(10 + i));
+            tx.setType(TransactionType.WITHDRAW);
+            tx.setDirection(TransactionDirection.DEBIT);
+            // Две транзакции с одинаковым временем проверяют упорядочивание по идентификатору
+            tx.setTimestamp(base.minusMinutes(i / 2));
+            tx.setDescription("Scroll " + i);
+            transactionRepository.save(tx);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            var request = get("/transactions/cards/" + userCardId1 + "/scroll")
+                    .header("Authorization", userToken)
+                    .param("limit", "2");
+            if (after != null) {
+                request.param("after", after);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            TransactionScrollResponseDto page = objectMapper.readValue(body, TransactionScrollResponseDto.class);
+            page.getContent().stream().map(TransactionResponseDto::getId).forEach(ids::add);
+            after = page.getNextCursor();
+            pages++;
+        } while (after != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, ids.size());
+        assertEquals(5, ids.stream().distinct().count());
+        List<Transaction> expected = transactionRepository.findAll().stream()
+                .sorted((a, b) -> a.getTimestamp().equals(b.getTimestamp())
+                        ? b.getId().compareTo(a.getId())
+                        : b.getTimestamp().compareTo(a.getTimestamp()))
+                .toList();
+        assertEquals(expected.stream().map(Transaction::getId).toList(), ids);
+
+        mockMvc.perform(get("/transactions/scroll")
+                        .header("Authorization", adminToken)
+                        .param("type", "TRANSFER"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    void scrollRejectsInvalidCursorAndLimit() throws Exception {
+        mockMvc.perform(get("/transactions/scroll")
+                        .header("Authorization", userToken)
+                        .param("after", "yesterday"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/transactions/scroll")
+                        .header("Authorization", userToken)
+                        .param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
 }
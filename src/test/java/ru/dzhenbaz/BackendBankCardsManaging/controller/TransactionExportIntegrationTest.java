@@ -0,0 +1,206 @@
+package ru.dzhenbaz.BackendBankCardsManaging.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.ExportFormat;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.service.TransactionService;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Проверяет выгрузку истории транзакций по карте: формат NDJSON/CSV, права доступа
+ * и то, что расход памяти при выгрузке большой истории не растёт вместе с её объёмом
+ * (замер памяти помечен тегом performance и выполняется только в профиле performance).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TransactionExportIntegrationTest {
+
+    private static final int LARGE_HISTORY = 300_000;
+    private static final long HEAP_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionService transactionService;
+
+    private User user;
+    private String userToken;
+    private String otherToken;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        user = new User();
+        user.setEmail("export@test.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+        userToken = "Bearer " + jwtUtil.generateToken(user.getEmail());
+
+        User other = new User();
+        other.setEmail("export-other@test.com");
+        other.setPassword(passwordEncoder.encode("password"));
+        other.setRole(Role.ROLE_USER);
+        userRepository.save(other);
+        otherToken = "Bearer " + jwtUtil.generateToken(other.getEmail());
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("1212343456567878");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(1000));
+        cardRepository.save(card);
+        cardId = card.getId();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        SecurityContextHolder.clearContext();
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void exportsNdjsonAndCsvNewestFirst() throws Exception {
+        jdbcTemplate.update("INSERT INTO transactions (card_id, type, direction, amount, timestamp, description) VALUES " +
+                "(?, 'WITHDRAW', 'DEBIT', 10.50, TIMESTAMP '2025-01-01 10:00:00', 'Coffee, \"large\"'), " +
+                "(?, 'TRANSFER', 'CREDIT', 20, TIMESTAMP '2025-01-02 10:00:00', NULL)", cardId, cardId);
+
+        MvcResult ndjson = mockMvc.perform(get("/transactions/cards/" + cardId + "/export")
+                        .header("Authorization", userToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"TRANSFER\""), lines[0]);
+        assertTrue(lines[1].contains("\"cardNumber\":\"**** **** **** 7878\""), lines[1]);
+        assertTrue(lines[1].contains("\"description\":\"Coffee, \\\"large\\\"\""), lines[1]);
+
+        MvcResult csv = mockMvc.perform(get("/transactions/cards/" + cardId + "/export")
+                        .header("Authorization", userToken)
+                        .param("format", "CSV")
+                        .param("type", "WITHDRAW"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"card-" + cardId + "-transactions.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("id,cardNumber,type,amount,timestamp,description\n" +
+                transactionRepository.findAll().stream()
+                        .filter(tx -> tx.getAmount().compareTo(BigDecimal.valueOf(10.5)) == 0)
+                        .findFirst().orElseThrow().getId() +
+                ",**** **** **** 7878,WITHDRAW,10.50,2025-01-01T10:00,\"Coffee, \"\"large\"\"\"\n", body);
+    }
+
+    @Test
+    void userCannotExportSomeoneElsesCard() throws Exception {
+        mockMvc.perform(get("/transactions/cards/" + cardId + "/export")
+                        .header("Authorization", otherToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @Tag("performance")
+    void exportOfLargeHistoryUsesBoundedHeap() throws Exception {
+        jdbcTemplate.update("INSERT INTO transactions (card_id, type, direction, amount, timestamp, description) " +
+                "SELECT ?, 'WITHDRAW', 'DEBIT', 1, DATEADD('SECOND', -X, CURRENT_TIMESTAMP), 'Export seed ' || X " +
+                "FROM SYSTEM_RANGE(1, ?)", cardId, LARGE_HISTORY);
+
+        ClientDetails principal = new ClientDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(memory);
+
+        transactionService.exportByCardId(cardId, null, ExportFormat.NDJSON).writeTo(out);
+
+        long growth = out.maxUsed - baseline;
+        assertEquals(LARGE_HISTORY, out.lines);
+        assertTrue(growth < HEAP_BUDGET_BYTES, "Heap grew by " + growth / 1024 + " KB");
+    }
+
+    /**
+     * Поток, отбрасывающий данные и периодически замеряющий занятую память после сборки мусора.
+     */
+    private static class HeapSamplingOutputStream extends OutputStream {
+
+        private static final long SAMPLE_EVERY_BYTES = 4L * 1024 * 1024;
+
+        private final MemoryMXBean memory;
+        private long bytes;
+        private long lines;
+        private long maxUsed;
+
+        HeapSamplingOutputStream(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            long before = bytes / SAMPLE_EVERY_BYTES;
+            bytes += len;
+            if (bytes / SAMPLE_EVERY_BYTES != before) {
+                System.gc();
+                maxUsed = Math.max(maxUsed, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+}
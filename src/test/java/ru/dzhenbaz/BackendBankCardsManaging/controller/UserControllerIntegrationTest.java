@@ -8,13 +8,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.AuthResponseDto;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.ChangeRoleRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.LoginRequestDto;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.PrincipalSource;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.JWTFilter;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.security.TokenVersionRegistry;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -27,6 +34,8 @@ public class UserControllerIntegrationTest {
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private JwtUtil jwtUtil;
     @Autowired private ObjectMapper objectMapper;
+    @Autowired private JWTFilter jwtFilter;
+    @Autowired private TokenVersionRegistry tokenVersionRegistry;
 
     private String adminToken;
     private Long userId;
@@ -90,4 +99,67 @@ public class UserControllerIntegrationTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("You cannot change your own role to non-admin."));
     }
+
+    @Test
+    void claimsTokenIsRevokedAfterRoleChange() throws Exception {
+        ReflectionTestUtils.setField(jwtFilter, "principalSource", PrincipalSource.CLAIMS);
+        try {
+            String userToken = login("user@test.com", "userpass");
+
+            mockMvc.perform(get("/cards").header("Authorization", userToken))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/users").header("Authorization", userToken))
+                    .andExpect(status().isForbidden());
+
+            mockMvc.perform(post("/users/" + userId + "/role")
+                            .header("Authorization", adminToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new ChangeRoleRequestDto(Role.ROLE_ADMIN))))
+                    .andExpect(status().isOk());
+            assertEquals(1, userRepository.findById(userId).orElseThrow().getTokenVersion());
+
+            mockMvc.perform(get("/cards").header("Authorization", userToken))
+                    .andExpect(status().isBadRequest());
+
+            mockMvc.perform(get("/users").header("Authorization", login("user@test.com", "userpass")))
+                    .andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(jwtFilter, "principalSource", PrincipalSource.DATABASE);
+        }
+    }
+
+    @Test
+    void claimsTokenRevokedByAnotherInstanceIsRejectedAfterRefresh() throws Exception {
+        ReflectionTestUtils.setField(jwtFilter, "principalSource", PrincipalSource.CLAIMS);
+        try {
+            String userToken = login("user@test.com", "userpass");
+            mockMvc.perform(get("/cards").header("Authorization", userToken))
+                    .andExpect(status().isOk());
+
+            // Версию повысил другой экземпляр приложения: этот экземпляр узнаёт о ней при перечитывании
+            User user = userRepository.findById(userId).orElseThrow();
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            userRepository.save(user);
+            tokenVersionRegistry.refresh();
+
+            mockMvc.perform(get("/cards").header("Authorization", userToken))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            ReflectionTestUtils.setField(jwtFilter, "principalSource", PrincipalSource.DATABASE);
+        }
+    }
+
+    private String login(String email, String password) throws Exception {
+        LoginRequestDto dto = new LoginRequestDto();
+        dto.setEmail(email);
+        dto.setPassword(password);
+
+        String body = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return "Bearer " + objectMapper.readValue(body, AuthResponseDto.class).getToken();
+    }
 }
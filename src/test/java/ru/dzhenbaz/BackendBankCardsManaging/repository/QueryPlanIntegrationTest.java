@@ -0,0 +1,98 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что типовые запросы по транзакциям и картам используют индексы из миграции.
+ * Таблицы заполняются один раз на класс; объёма достаточно, чтобы после ANALYZE полный просмотр таблицы
+ * был для H2 заметно дороже чтения по индексу.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanIntegrationTest {
+
+    private static final int CARDS = 200;
+    private static final int TRANSACTIONS = 20_000;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private UserRepository userRepository;
+
+    private long userId;
+    private long cardId;
+
+    @BeforeAll
+    void seed() {
+        cleanDb();
+
+        jdbcTemplate.update("INSERT INTO users (email, password, role) VALUES ('plan@test.com', 'password', 'ROLE_USER')");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'plan@test.com'", Long.class);
+
+        jdbcTemplate.update("INSERT INTO cards (card_number, user_id, expiration_date, status, balance, version) " +
+                "SELECT 'seed-' || X, ?, DATEADD('YEAR', 2, CURRENT_DATE), " +
+                "CASE WHEN MOD(X, 10) = 0 THEN 'BLOCKED' ELSE 'ACTIVE' END, 1000, 0 " +
+                "FROM SYSTEM_RANGE(1, ?)", userId, CARDS);
+        // Идентификаторы выдаются последовательностью с шагом, поэтому карты нумеруются по порядку id
+        cardId = jdbcTemplate.queryForObject("SELECT id FROM cards ORDER BY id OFFSET ? ROWS FETCH FIRST 1 ROW ONLY",
+                Long.class, CARDS / 2);
+
+        jdbcTemplate.update("INSERT INTO transactions (card_id, type, direction, amount, timestamp, description) " +
+                "SELECT c.id, CASE WHEN MOD(r.X, 3) = 0 THEN 'TRANSFER' ELSE 'WITHDRAW' END, 'DEBIT', 1, " +
+                "DATEADD('SECOND', -r.X, CURRENT_TIMESTAMP), 'seed' FROM SYSTEM_RANGE(1, ?) r " +
+                "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS n FROM cards) c ON c.n = MOD(r.X, ?)",
+                TRANSACTIONS, CARDS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void cleanDb() {
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void withdrawalsByCardAndPeriodUseCardTypeTimestampIndex() {
+        assertPlanUses("IDX_TRANSACTIONS_CARD_TYPE_TIMESTAMP",
+                "SELECT SUM(amount) FROM transactions WHERE card_id = " + cardId + " AND type = 'WITHDRAW' " +
+                        "AND timestamp BETWEEN DATEADD('DAY', -1, CURRENT_TIMESTAMP) AND CURRENT_TIMESTAMP");
+    }
+
+    @Test
+    void latestTransactionsOfCardUseIndex() {
+        // H2 создаёт собственный индекс для каждого внешнего ключа и выбирает его для этого запроса,
+        // в PostgreSQL запрос обслуживается индексом idx_transactions_card_timestamp
+        assertPlanUses("_CARD", "SELECT * FROM transactions WHERE card_id = " + cardId + " ORDER BY timestamp DESC LIMIT 10");
+    }
+
+    @Test
+    void cardsByOwnerAndStatusUseOwnerStatusIndex() {
+        assertPlanUses("IDX_CARDS_USER_STATUS",
+                "SELECT * FROM cards WHERE user_id = " + userId + " AND status = 'BLOCKED'");
+    }
+
+    @Test
+    void cardsByStatusUseStatusIndex() {
+        assertPlanUses("IDX_CARDS_STATUS", "SELECT * FROM cards WHERE status = 'BLOCKED'");
+    }
+
+    /**
+     * Проверяет, что запрос читает таблицу через индекс с указанным фрагментом имени.
+     */
+    private void assertPlanUses(String index, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertFalse(plan.contains("tableScan"), "Unexpected table scan: " + plan);
+        String usedIndex = plan.substring(plan.indexOf("/* ") + 3, plan.indexOf(':', plan.indexOf("/* ")));
+        assertTrue(usedIndex.contains(index), "Expected " + index + " in plan: " + plan);
+    }
+}
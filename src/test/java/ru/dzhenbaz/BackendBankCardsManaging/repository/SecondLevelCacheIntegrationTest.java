@@ -0,0 +1,152 @@
+package ru.dzhenbaz.BackendBankCardsManaging.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+import ru.dzhenbaz.BackendBankCardsManaging.service.LimitRegistry;
+import ru.dzhenbaz.BackendBankCardsManaging.service.TransactionService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет кэш второго уровня Hibernate: снятия не обращаются к таблицам лимитов,
+ * повторные чтения лимита и пользователя для аутентификации обслуживаются из кэша,
+ * а периодическая проверка версии подхватывает изменение лимита в обход кэша.
+ */
+@SpringBootTest
+public class SecondLevelCacheIntegrationTest {
+
+    private static final int WITHDRAWALS = 20;
+    private static final String EMAIL = "l2cache@test.com";
+    private static final Pattern LIMIT_QUERY = Pattern.compile("\\b(Limit|LimitRule|limits|limit_rules)\\b");
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("4000300020001000");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(1000));
+        cardRepository.save(card);
+        cardId = card.getId();
+
+        ClientDetails principal = new ClientDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        limitRegistry.refresh();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        if (statistics != null) {
+            statistics.setStatisticsEnabled(false);
+        }
+        SecurityContextHolder.clearContext();
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedWithdrawalsIssueNoLimitQueries() {
+        for (int i = 0; i < WITHDRAWALS; i++) {
+            transactionService.withdraw(cardId, BigDecimal.ONE, "Cache");
+        }
+
+        assertEquals(0, statistics.getEntityStatistics(Limit.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(LimitRule.class.getName()).getLoadCount());
+        assertTrue(Arrays.stream(statistics.getQueries()).noneMatch(q -> LIMIT_QUERY.matcher(q).find()),
+                "Queries: " + Arrays.toString(statistics.getQueries()));
+    }
+
+    @Test
+    void repeatedLimitLookupIsServedFromCache() {
+        limitRepository.findByName(LimitRegistry.DAILY_LIMIT);
+        statistics.clear();
+
+        Limit limit = limitRepository.findByName(LimitRegistry.DAILY_LIMIT);
+
+        assertEquals(limitRegistry.getDailyLimit(), limit.getLimitValue());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(Limit.CACHE_REGION).getHitCount());
+    }
+
+    @Test
+    void repeatedAuthLookupIsServedFromCache() {
+        userRepository.findUserByEmail(EMAIL);
+        statistics.clear();
+
+        User user = userRepository.findUserByEmail(EMAIL).orElseThrow();
+
+        assertEquals(Role.ROLE_USER, user.getRole());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(User.CACHE_REGION).getHitCount());
+    }
+
+    @Test
+    void versionPollingBypassesCache() {
+        BigDecimal original = limitRegistry.getDailyLimit();
+        limitRepository.findByName(LimitRegistry.DAILY_LIMIT);
+        try {
+            // Изменение другим экземпляром приложения не проходит через кэш этого экземпляра
+            jdbcTemplate.update("UPDATE limits SET limit_value = ?, version = version + 1 WHERE name = ?",
+                    4321, LimitRegistry.DAILY_LIMIT);
+
+            limitRegistry.pollVersion();
+
+            assertEquals(0, BigDecimal.valueOf(4321).compareTo(limitRegistry.getDailyLimit()));
+            assertEquals(0, BigDecimal.valueOf(4321).compareTo(
+                    limitRepository.findByName(LimitRegistry.DAILY_LIMIT).getLimitValue()));
+        } finally {
+            jdbcTemplate.update("UPDATE limits SET limit_value = ?, version = version + 1 WHERE name = ?",
+                    original, LimitRegistry.DAILY_LIMIT);
+            limitRegistry.pollVersion();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.dzhenbaz.BackendBankCardsManaging.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import org.junit.jupiter.api.Test;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "SECRET";
+
+    @Test
+    void expiredTokenIsRejectedEvenWhenCached() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, true, 100, Duration.ofMinutes(5));
+        Instant expiresAt = Instant.now().plusSeconds(1);
+        String token = JWT.create()
+                .withSubject("User details")
+                .withIssuer("Dzhenbaz")
+                .withClaim("email", "user@test.com")
+                .withExpiresAt(Date.from(expiresAt))
+                .sign(Algorithm.HMAC256(SECRET));
+
+        assertEquals("user@test.com", jwtUtil.validateToken(token).email());
+
+        // Время хранения в кэше больше срока действия токена: истечение проверяется по самому токену
+        Thread.sleep(Duration.between(Instant.now(), expiresAt).toMillis() + 1_100);
+        assertThrows(TokenExpiredException.class, () -> jwtUtil.validateToken(token));
+    }
+
+    @Test
+    void disabledCacheStillVerifiesEveryToken() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, false, 100, Duration.ofMinutes(5));
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user@test.com");
+        user.setRole(Role.ROLE_USER);
+
+        JwtUtil.VerifiedToken verified = jwtUtil.validateToken(jwtUtil.generateToken(user, 3));
+        assertEquals(1L, verified.userId());
+        assertEquals(Role.ROLE_USER, verified.role());
+        assertEquals(3, verified.version());
+        assertTrue(verified.hasPrincipalClaims());
+
+        String foreign = new JwtUtil("OTHER", false, 100, Duration.ofMinutes(5)).generateToken(user.getEmail());
+        assertThrows(SignatureVerificationException.class, () -> jwtUtil.validateToken(foreign));
+        assertThrows(SignatureVerificationException.class, () -> jwtUtil.validateToken(foreign));
+    }
+}
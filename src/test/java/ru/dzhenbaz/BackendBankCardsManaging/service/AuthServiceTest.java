@@ -15,6 +15,7 @@ import ru.dzhenbaz.BackendBankCardsManaging.model.User;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.security.JwtUtil;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalCache;
 
 import java.util.Optional;
 
@@ -35,6 +36,9 @@ public class AuthServiceTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private PrincipalCache principalCache;
+
     @InjectMocks
     private AuthService authService;
 
@@ -67,12 +71,13 @@ public class AuthServiceTest {
 
         when(passwordEncoder.encode(registerDto.getPassword())).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
-        when(jwtUtil.generateToken(registerDto.getEmail())).thenReturn("mocked-jwt");
+        when(jwtUtil.generateToken(user, 0)).thenReturn("mocked-jwt");
 
         AuthResponseDto response = authService.register(registerDto);
 
         assertEquals("mocked-jwt", response.getToken());
         verify(userRepository).save(any(User.class));
+        verify(principalCache).evict(registerDto.getEmail());
     }
 
     @Test
@@ -87,7 +92,7 @@ public class AuthServiceTest {
     void shouldLoginUserWithCorrectCredentials() {
         when(userRepository.findUserByEmail(loginDto.getEmail())).thenReturn(Optional.of(user));
         when(passwordEncoder.matches(loginDto.getPassword(), user.getPassword())).thenReturn(true);
-        when(jwtUtil.generateToken(user.getEmail())).thenReturn("mocked-jwt");
+        when(jwtUtil.generateToken(user, 0)).thenReturn("mocked-jwt");
 
         AuthResponseDto response = authService.login(loginDto);
 
@@ -0,0 +1,29 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.junit.jupiter.api.Test;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class CardCountCacheTest {
+
+    @Test
+    void countsAreCachedPerStatus() {
+        CardRepository cardRepository = mock(CardRepository.class);
+        when(cardRepository.count()).thenReturn(10L, 11L);
+        when(cardRepository.countByStatus(CardStatus.BLOCKED)).thenReturn(2L);
+        CardCountCache cache = new CardCountCache(cardRepository, Duration.ofMinutes(1));
+
+        assertEquals(10L, cache.get(null).getApproximateTotal());
+        assertEquals(10L, cache.get(null).getApproximateTotal());
+        assertEquals(2L, cache.get(CardStatus.BLOCKED).getApproximateTotal());
+        assertEquals(2L, cache.get(CardStatus.BLOCKED).getApproximateTotal());
+
+        verify(cardRepository, times(1)).count();
+        verify(cardRepository, times(1)).countByStatus(CardStatus.BLOCKED);
+    }
+}
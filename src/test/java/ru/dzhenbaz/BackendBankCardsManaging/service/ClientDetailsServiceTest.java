@@ -0,0 +1,85 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+import ru.dzhenbaz.BackendBankCardsManaging.security.PrincipalCache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PrincipalCache principalCache;
+    private ClientDetailsService clientDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        principalCache = new PrincipalCache(true, 100, Duration.ofMinutes(5), meterRegistry);
+        clientDetailsService = new ClientDetailsService(userRepository, principalCache);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("user@test.com");
+        user.setPassword("encodedPassword");
+        user.setRole(Role.ROLE_USER);
+    }
+
+    @Test
+    void shouldLoadUserFromDatabaseOnlyOnce() {
+        when(userRepository.findUserByEmail("user@test.com")).thenReturn(Optional.of(user));
+
+        ClientDetails first = clientDetailsService.loadAuthenticatedUser("user@test.com");
+        ClientDetails second = clientDetailsService.loadAuthenticatedUser("user@test.com");
+
+        verify(userRepository, times(1)).findUserByEmail("user@test.com");
+        assertEquals(1L, second.getUser().getId());
+        assertEquals("ROLE_USER", second.getAuthorities().iterator().next().getAuthority());
+        assertNull(second.getPassword());
+        assertNotSame(first.getUser(), second.getUser());
+        assertEquals(1.0, meterRegistry.get("security.principal.db.lookups.saved").functionCounter().count());
+        assertEquals(0.5, meterRegistry.get("security.principal.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void shouldReloadUserAfterEviction() {
+        when(userRepository.findUserByEmail("user@test.com")).thenReturn(Optional.of(user));
+        clientDetailsService.loadAuthenticatedUser("user@test.com");
+
+        user.setRole(Role.ROLE_ADMIN);
+        principalCache.evict("user@test.com");
+
+        ClientDetails reloaded = clientDetailsService.loadAuthenticatedUser("user@test.com");
+
+        verify(userRepository, times(2)).findUserByEmail("user@test.com");
+        assertEquals("ROLE_ADMIN", reloaded.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void shouldNotCacheMissingUser() {
+        when(userRepository.findUserByEmail("missing@test.com")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> clientDetailsService.loadAuthenticatedUser("missing@test.com"));
+        assertThrows(UsernameNotFoundException.class, () -> clientDetailsService.loadAuthenticatedUser("missing@test.com"));
+
+        verify(userRepository, times(2)).findUserByEmail("missing@test.com");
+    }
+}
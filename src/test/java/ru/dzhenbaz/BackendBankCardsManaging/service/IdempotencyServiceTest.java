@@ -0,0 +1,133 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawRequestDto;
+import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.IdempotencyConflictException;
+import ru.dzhenbaz.BackendBankCardsManaging.model.IdempotencyRecord;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.IdempotencyStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.IdempotencyRecordRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.CardNumberEncryptor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock private IdempotencyRecordRepository repository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private CardNumberEncryptor encryptor;
+    private IdempotencyService idempotencyService;
+    private WithdrawRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        encryptor = new CardNumberEncryptor("MySecretKey69420", new SimpleMeterRegistry());
+        idempotencyService = new IdempotencyService(repository, new ObjectMapper().findAndRegisterModules(),
+                encryptor, transactionManager, 100, Duration.ofHours(24), Duration.ofMinutes(5));
+        request = new WithdrawRequestDto(1L, BigDecimal.TEN, "ATM");
+    }
+
+    @Test
+    void repeatedKeyIsServedFromCacheWithoutRunningOperation() {
+        when(repository.reserve(eq(1L), eq("key"), eq("WITHDRAW"), anyString(), any())).thenReturn(1);
+        AtomicInteger calls = new AtomicInteger();
+        WithdrawResponseDto response = new WithdrawResponseDto(5L, "1111222233334444", null,
+                new BigDecimal("10.00"), null, "ATM");
+
+        WithdrawResponseDto first = idempotencyService.execute(1L, "key", "WITHDRAW", request,
+                WithdrawResponseDto.class, () -> {
+                    calls.incrementAndGet();
+                    return response;
+                });
+        WithdrawResponseDto second = idempotencyService.execute(1L, "key", "WITHDRAW", request,
+                WithdrawResponseDto.class, () -> {
+                    calls.incrementAndGet();
+                    return new WithdrawResponseDto();
+                });
+
+        assertSame(response, first);
+        assertEquals(5L, second.getId());
+        assertEquals("1111222233334444", second.getCardNumber());
+        assertEquals(1, calls.get());
+        verify(repository, times(1)).reserve(any(), any(), any(), any(), any());
+        // Номер карты из ответа не сохраняется в открытом виде
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(repository).complete(eq(1L), eq("key"), stored.capture());
+        assertFalse(stored.getValue().contains("1111222233334444"));
+        assertTrue(encryptor.decrypt(stored.getValue()).contains("1111222233334444"));
+        verify(repository, never()).findByUserIdAndIdempotencyKey(any(), any());
+        // Резерв ключа и операция вместе с сохранением ответа — две транзакции
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void keyOfRequestInProgressIsRejected() {
+        when(repository.reserve(eq(1L), eq("key"), eq("WITHDRAW"), anyString(), any())).thenReturn(0);
+        IdempotencyRecord pending = new IdempotencyRecord();
+        pending.setOperation("WITHDRAW");
+        pending.setStatus(IdempotencyStatus.PENDING);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "key")).thenAnswer(invocation -> {
+            pending.setRequestHash(captureHash());
+            return Optional.of(pending);
+        });
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute(1L, "key", "WITHDRAW",
+                request, WithdrawResponseDto.class, WithdrawResponseDto::new));
+        verify(repository, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void staleReservationIsTakenOverByRetry() {
+        when(repository.reserve(eq(1L), eq("key"), eq("WITHDRAW"), anyString(), any())).thenReturn(0);
+        IdempotencyRecord pending = new IdempotencyRecord();
+        pending.setOperation("WITHDRAW");
+        pending.setStatus(IdempotencyStatus.PENDING);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "key")).thenAnswer(invocation -> {
+            pending.setRequestHash(captureHash());
+            return Optional.of(pending);
+        });
+        when(repository.takeOverPending(eq(1L), eq("key"), any(), any())).thenReturn(1);
+        WithdrawResponseDto response = new WithdrawResponseDto();
+
+        assertSame(response, idempotencyService.execute(1L, "key", "WITHDRAW", request,
+                WithdrawResponseDto.class, () -> response));
+        verify(repository).complete(eq(1L), eq("key"), anyString());
+    }
+
+    @Test
+    void failedOperationReleasesKey() {
+        when(repository.reserve(eq(1L), eq("key"), eq("WITHDRAW"), anyString(), any())).thenReturn(1);
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute(1L, "key", "WITHDRAW",
+                request, WithdrawResponseDto.class, () -> {
+                    throw new IllegalArgumentException("Insufficient balance");
+                }));
+
+        verify(repository).release(1L, "key");
+        verify(repository, never()).complete(any(), any(), any());
+    }
+
+    private String captureHash() {
+        return mockingDetails(repository).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("reserve"))
+                .map(invocation -> (String) invocation.getArgument(3))
+                .findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,149 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardDailyUsage;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardDailyUsageRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LimitEvaluatorTest {
+
+    @Mock private LimitRegistry limitRegistry;
+    @Mock private CardDailyUsageRepository dailyUsageRepository;
+
+    @InjectMocks
+    private LimitEvaluator limitEvaluator;
+
+    @Test
+    void shouldCreateDailyUsageRowOnFirstWithdrawalOfDay() {
+        BigDecimal dailyLimit = BigDecimal.valueOf(500);
+        when(limitRegistry.profileFor(10L, 1L, TransactionType.WITHDRAW))
+                .thenReturn(profile(TransactionType.WITHDRAW, null, dailyLimit, null, null));
+        when(dailyUsageRepository.addWithdrawalWithinLimit(10L, LocalDate.now(), BigDecimal.valueOf(100),
+                dailyLimit)).thenReturn(0, 1);
+
+        assertDoesNotThrow(() ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.WITHDRAW, BigDecimal.valueOf(100)));
+
+        verify(dailyUsageRepository).insertIfAbsent(10L, LocalDate.now());
+        verify(dailyUsageRepository, times(2)).addWithdrawalWithinLimit(10L, LocalDate.now(),
+                BigDecimal.valueOf(100), dailyLimit);
+        verify(dailyUsageRepository, never()).findByCardIdAndUsageDateGreaterThanEqual(any(), any());
+    }
+
+    @Test
+    void shouldRejectWhenDailyUsageRowCannotAbsorbAmount() {
+        when(limitRegistry.profileFor(10L, 1L, TransactionType.TRANSFER))
+                .thenReturn(profile(TransactionType.TRANSFER, null, BigDecimal.valueOf(500), null, null));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.TRANSFER, BigDecimal.valueOf(600)));
+
+        assertEquals("Daily transfer limit exceeded", ex.getMessage());
+    }
+
+    @Test
+    void shouldCheckAllWindowsWithSingleUsageRead() {
+        LocalDate today = LocalDate.now();
+        when(limitRegistry.profileFor(10L, 1L, TransactionType.WITHDRAW)).thenReturn(profile(
+                TransactionType.WITHDRAW, BigDecimal.valueOf(400), BigDecimal.valueOf(1000),
+                BigDecimal.valueOf(1500), BigDecimal.valueOf(5000)));
+        when(dailyUsageRepository.addUsage(10L, today, BigDecimal.valueOf(300), BigDecimal.ZERO)).thenReturn(1);
+        when(dailyUsageRepository.findByCardIdAndUsageDateGreaterThanEqual(10L, today.minusDays(29)))
+                .thenReturn(List.of(usage(today, 300), usage(today.minusDays(3), 1000), usage(today.minusDays(20), 2000)));
+
+        assertDoesNotThrow(() ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.WITHDRAW, BigDecimal.valueOf(300)));
+
+        when(dailyUsageRepository.findByCardIdAndUsageDateGreaterThanEqual(10L, today.minusDays(29)))
+                .thenReturn(List.of(usage(today, 600), usage(today.minusDays(3), 1000)));
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.WITHDRAW, BigDecimal.valueOf(300)));
+
+        assertEquals("Weekly withdrawal limit exceeded", ex.getMessage());
+        verify(dailyUsageRepository, times(2)).findByCardIdAndUsageDateGreaterThanEqual(any(), any());
+        verify(dailyUsageRepository, never()).addWithdrawalWithinLimit(any(), any(), any(), any());
+    }
+
+    @Test
+    void perTransactionLimitOnlyRecordsUsage() {
+        LocalDate today = LocalDate.now();
+        when(limitRegistry.profileFor(10L, 1L, TransactionType.TRANSFER))
+                .thenReturn(profile(TransactionType.TRANSFER, BigDecimal.valueOf(100), null, null, null));
+        when(dailyUsageRepository.addUsage(10L, today, BigDecimal.ZERO, BigDecimal.valueOf(100))).thenReturn(1);
+
+        assertDoesNotThrow(() ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.TRANSFER, BigDecimal.valueOf(100)));
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                limitEvaluator.checkAndRecord(10L, 1L, TransactionType.TRANSFER, BigDecimal.valueOf(101)));
+
+        assertEquals("Per-transaction transfer limit exceeded", ex.getMessage());
+        verify(dailyUsageRepository).addUsage(10L, today, BigDecimal.ZERO, BigDecimal.valueOf(100));
+        verify(dailyUsageRepository, never()).findByCardIdAndUsageDateGreaterThanEqual(any(), any());
+        verifyNoMoreInteractions(dailyUsageRepository);
+    }
+
+    @Test
+    void batchAccumulatesInMemoryAndRecordsOncePerCard() {
+        LocalDate today = LocalDate.now();
+        when(limitRegistry.profileFor(10L, 1L, TransactionType.TRANSFER))
+                .thenReturn(profile(TransactionType.TRANSFER, null, null, BigDecimal.valueOf(1000), null));
+        when(limitRegistry.profileFor(11L, 1L, TransactionType.TRANSFER))
+                .thenReturn(profile(TransactionType.TRANSFER, null, null, null, null));
+        when(dailyUsageRepository.findByCardIdInAndUsageDateGreaterThanEqual(List.of(10L), today.minusDays(6)))
+                .thenReturn(List.of(usage(today.minusDays(2), 0, 500)));
+        when(dailyUsageRepository.addUsage(10L, today, BigDecimal.ZERO, BigDecimal.valueOf(400))).thenReturn(1);
+        when(dailyUsageRepository.addUsage(11L, today, BigDecimal.ZERO, BigDecimal.valueOf(5000))).thenReturn(1);
+
+        LimitEvaluator.Batch batch = limitEvaluator.startBatch(Set.of(10L, 11L), 1L, TransactionType.TRANSFER);
+        batch.checkAndRecord(10L, BigDecimal.valueOf(300));
+        assertThrows(IllegalArgumentException.class, () -> batch.checkAndRecord(10L, BigDecimal.valueOf(300)));
+        batch.checkAndRecord(10L, BigDecimal.valueOf(100));
+        batch.checkAndRecord(11L, BigDecimal.valueOf(5000));
+        batch.flush();
+
+        verify(dailyUsageRepository).addUsage(10L, today, BigDecimal.ZERO, BigDecimal.valueOf(400));
+        verify(dailyUsageRepository).addUsage(11L, today, BigDecimal.ZERO, BigDecimal.valueOf(5000));
+    }
+
+    private static LimitProfile profile(TransactionType operation, BigDecimal perTransaction, BigDecimal daily,
+                                        BigDecimal weekly, BigDecimal monthly) {
+        BigDecimal[] maxAmounts = new BigDecimal[LimitPeriod.values().length];
+        maxAmounts[LimitPeriod.TRANSACTION.ordinal()] = perTransaction;
+        maxAmounts[LimitPeriod.DAILY.ordinal()] = daily;
+        maxAmounts[LimitPeriod.WEEKLY.ordinal()] = weekly;
+        maxAmounts[LimitPeriod.MONTHLY.ordinal()] = monthly;
+        LimitScope[] scopes = new LimitScope[LimitPeriod.values().length];
+        Arrays.fill(scopes, LimitScope.CARD);
+        return new LimitProfile(operation, maxAmounts, scopes);
+    }
+
+    private static CardDailyUsage usage(LocalDate date, long withdrawn) {
+        return usage(date, withdrawn, 0);
+    }
+
+    private static CardDailyUsage usage(LocalDate date, long withdrawn, long transferred) {
+        CardDailyUsage usage = new CardDailyUsage();
+        usage.setCardId(10L);
+        usage.setUsageDate(date);
+        usage.setWithdrawn(BigDecimal.valueOf(withdrawn));
+        usage.setTransferred(BigDecimal.valueOf(transferred));
+        return usage;
+    }
+}
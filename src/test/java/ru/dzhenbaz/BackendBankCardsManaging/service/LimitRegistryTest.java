@@ -0,0 +1,136 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.LimitRule;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitPeriod;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.LimitScope;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRuleRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.LimitRulesRevision;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LimitRegistryTest {
+
+    @Mock private LimitRepository limitRepository;
+    @Mock private LimitRuleRepository limitRuleRepository;
+
+    @InjectMocks
+    private LimitRegistry limitRegistry;
+
+    private Limit limit;
+
+    @BeforeEach
+    void setUp() {
+        limit = new Limit(1, LimitRegistry.DAILY_LIMIT, BigDecimal.valueOf(500));
+        limit.setVersion(3L);
+        when(limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT)).thenReturn(limit);
+        when(limitRuleRepository.findRevision()).thenReturn(revision(0, null));
+        limitRegistry.refresh();
+        clearInvocations(limitRepository, limitRuleRepository);
+    }
+
+    @Test
+    void dailyLimitIsReadFromMemory() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(BigDecimal.valueOf(500), limitRegistry.getDailyLimit());
+        }
+        verifyNoInteractions(limitRepository);
+    }
+
+    @Test
+    void pollReloadsOnlyWhenVersionChanged() {
+        when(limitRuleRepository.findRevision()).thenReturn(revision(0, null));
+        when(limitRepository.findVersionByName(LimitRegistry.DAILY_LIMIT)).thenReturn(Optional.of(3L));
+        limitRegistry.pollVersion();
+        verify(limitRepository, never()).findFreshByName(any());
+        verify(limitRuleRepository, never()).findAll();
+
+        Limit changed = new Limit(1, LimitRegistry.DAILY_LIMIT, BigDecimal.valueOf(800));
+        changed.setVersion(4L);
+        when(limitRepository.findVersionByName(LimitRegistry.DAILY_LIMIT)).thenReturn(Optional.of(4L));
+        when(limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT)).thenReturn(changed);
+        limitRegistry.pollVersion();
+
+        assertEquals(BigDecimal.valueOf(800), limitRegistry.getDailyLimit());
+    }
+
+    @Test
+    void updateOutsideTransactionIsAppliedImmediately() {
+        limit.setLimitValue(BigDecimal.valueOf(700));
+        limit.setVersion(4L);
+
+        limitRegistry.onUpdated(limit);
+
+        assertEquals(BigDecimal.valueOf(700), limitRegistry.getDailyLimit());
+        verifyNoInteractions(limitRepository);
+    }
+
+    @Test
+    void missingLimitIsCreatedWithDefault() {
+        when(limitRepository.findFreshByName(LimitRegistry.DAILY_LIMIT)).thenReturn(null);
+        when(limitRepository.save(any(Limit.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(0, BigDecimal.valueOf(1000000).compareTo(limitRegistry.refresh()));
+        verify(limitRepository).save(any(Limit.class));
+    }
+
+    @Test
+    void mostSpecificRuleWinsForEachPeriod() {
+        LocalDateTime updatedAt = LocalDateTime.now();
+        when(limitRuleRepository.findRevision()).thenReturn(revision(4, updatedAt));
+        when(limitRuleRepository.findAll()).thenReturn(List.of(
+                new LimitRule(TransactionType.WITHDRAW, LimitPeriod.WEEKLY, null, null, BigDecimal.valueOf(3000)),
+                new LimitRule(TransactionType.WITHDRAW, LimitPeriod.WEEKLY, null, 1L, BigDecimal.valueOf(2000)),
+                new LimitRule(TransactionType.WITHDRAW, LimitPeriod.DAILY, 10L, null, BigDecimal.valueOf(200)),
+                new LimitRule(TransactionType.TRANSFER, LimitPeriod.TRANSACTION, null, 2L, BigDecimal.valueOf(50))));
+        limitRegistry.refreshRules();
+
+        LimitProfile profile = limitRegistry.profileFor(10L, 1L, TransactionType.WITHDRAW);
+        assertEquals(BigDecimal.valueOf(200), profile.getMaxAmount(LimitPeriod.DAILY));
+        assertEquals(LimitScope.CARD, profile.getScope(LimitPeriod.DAILY));
+        assertEquals(BigDecimal.valueOf(2000), profile.getMaxAmount(LimitPeriod.WEEKLY));
+        assertEquals(LimitScope.USER, profile.getScope(LimitPeriod.WEEKLY));
+        assertNull(profile.getMaxAmount(LimitPeriod.MONTHLY));
+        assertEquals(7, profile.historyDays());
+
+        LimitProfile otherCard = limitRegistry.profileFor(11L, 3L, TransactionType.WITHDRAW);
+        assertEquals(BigDecimal.valueOf(500), otherCard.getMaxAmount(LimitPeriod.DAILY));
+        assertEquals(BigDecimal.valueOf(3000), otherCard.getMaxAmount(LimitPeriod.WEEKLY));
+        assertFalse(limitRegistry.profileFor(11L, 3L, TransactionType.TRANSFER).tracksUsage());
+
+        when(limitRuleRepository.findRevision()).thenReturn(revision(4, updatedAt));
+        when(limitRepository.findVersionByName(LimitRegistry.DAILY_LIMIT)).thenReturn(Optional.of(3L));
+        limitRegistry.pollVersion();
+        verify(limitRuleRepository, times(1)).findAll();
+    }
+
+    private static LimitRulesRevision revision(long count, LocalDateTime lastUpdatedAt) {
+        return new LimitRulesRevision() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public LocalDateTime getLastUpdatedAt() {
+                return lastUpdatedAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.BalanceLockMode;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка конкурентных снятий с одной "горячей" карты.
+ * Для каждого режима блокировки проверяет, что итоговый баланс точен и каждое снятие записано в журнал.
+ */
+@SpringBootTest
+public class TransactionServiceConcurrencyIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int WITHDRAWALS = 400;
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(10);
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+
+    private User user;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        user = new User();
+        user.setEmail("hot-card@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("4444333322221111");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(INITIAL_BALANCE);
+        cardRepository.save(card);
+        cardId = card.getId();
+
+        Limit limit = limitRepository.findByName("daily_limit");
+        limit.setLimitValue(BigDecimal.valueOf(1_000_000));
+        limitRepository.save(limit);
+        limitRegistry.refresh();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BalanceLockMode.class)
+    void parallelWithdrawalsKeepBalanceExact(BalanceLockMode mode) throws Exception {
+        TransactionService target = AopTestUtils.getUltimateTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "lockMode", mode);
+        ReflectionTestUtils.setField(target, "optimisticMaxAttempts", 50);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < WITHDRAWALS; i++) {
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                            new ClientDetails(user), null, new ClientDetails(user).getAuthorities()));
+                    try {
+                        start.await();
+                        transactionService.withdraw(cardId, AMOUNT, "Contention");
+                        succeeded.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        conflicts.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            ReflectionTestUtils.setField(target, "lockMode", BalanceLockMode.ATOMIC);
+            ReflectionTestUtils.setField(target, "optimisticMaxAttempts", 5);
+        }
+
+        BigDecimal expected = INITIAL_BALANCE.subtract(AMOUNT.multiply(BigDecimal.valueOf(succeeded.get())));
+        Card card = cardRepository.findById(cardId).orElseThrow();
+
+        assertEquals(WITHDRAWALS, succeeded.get() + conflicts.get());
+        if (mode != BalanceLockMode.OPTIMISTIC) {
+            assertEquals(0, conflicts.get());
+        }
+        assertEquals(0, expected.compareTo(card.getBalance()));
+        assertEquals(succeeded.get(), transactionRepository.count());
+    }
+}
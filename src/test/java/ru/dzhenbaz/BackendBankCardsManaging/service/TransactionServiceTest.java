@@ -1,32 +1,41 @@
 package ru.dzhenbaz.BackendBankCardsManaging.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.mockito.InOrder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.dzhenbaz.BackendBankCardsManaging.dto.WithdrawResponseDto;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.CardStateException;
+import ru.dzhenbaz.BackendBankCardsManaging.ex.OperationRejectedException;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
-import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.CardNumber;
 import ru.dzhenbaz.BackendBankCardsManaging.model.Transaction;
 import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.BalanceLockMode;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
 import ru.dzhenbaz.BackendBankCardsManaging.model.enums.TransactionType;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
-import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
 import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.projection.CardOperationView;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,15 +45,16 @@ public class TransactionServiceTest {
     private TransactionRepository transactionRepository;
     @Mock private CardRepository cardRepository;
     @Mock private AuthService authService;
-    @Mock private LimitRepository limitRepository;
-    @Mock private ModelMapper modelMapper;
+    @Mock private LimitEvaluator limitEvaluator;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private ObjectMapper objectMapper;
+    @Spy private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private TransactionService transactionService;
 
     private User user;
     private Card card;
-    private Limit limit;
 
     @BeforeEach
     void setUp() {
@@ -59,39 +69,19 @@ public class TransactionServiceTest {
         card.setStatus(CardStatus.ACTIVE);
         card.setExpirationDate(LocalDate.now().plusYears(1));
         card.setBalance(BigDecimal.valueOf(1000));
-
-        limit = new Limit();
-        limit.setName("daily_limit");
-        limit.setLimitValue(BigDecimal.valueOf(500));
     }
 
     @Test
     void shouldWithdrawSuccessfullyWithinLimit() {
+        ReflectionTestUtils.setField(transactionService, "lockMode", BalanceLockMode.PESSIMISTIC);
         when(authService.getCurrentUser()).thenReturn(user);
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
-        when(limitRepository.findByName("daily_limit")).thenReturn(limit);
-        when(transactionRepository.sumWithdrawalsByCardAndDateRange(any(), any(), any()))
-                .thenReturn(Optional.of(BigDecimal.valueOf(100)));
-
-        Transaction tx = new Transaction();
-        tx.setId(1L);
-        tx.setCard(card);
-        tx.setAmount(BigDecimal.valueOf(200));
-        tx.setType(TransactionType.WITHDRAW);
-        tx.setTimestamp(LocalDateTime.now());
-        tx.setDescription("ATM");
-
-        when(transactionRepository.save(any())).thenReturn(tx);
-
-        WithdrawResponseDto mappedDto = new WithdrawResponseDto();
-        mappedDto.setId(1L);
-        mappedDto.setAmount(BigDecimal.valueOf(200));
-        mappedDto.setType(TransactionType.WITHDRAW);
-        mappedDto.setTimestamp(tx.getTimestamp());
-        mappedDto.setDescription("ATM");
-        mappedDto.setCardNumber("**** **** **** 4444");
-
-        when(modelMapper.map(any(Transaction.class), eq(WithdrawResponseDto.class))).thenReturn(mappedDto);
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+
+        when(transactionRepository.save(any())).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
 
         WithdrawResponseDto response = transactionService.withdraw(10L, BigDecimal.valueOf(200), "ATM");
 
@@ -100,6 +90,8 @@ public class TransactionServiceTest {
         assertEquals(TransactionType.WITHDRAW, response.getType());
         assertEquals(BigDecimal.valueOf(200), response.getAmount());
         assertEquals("ATM", response.getDescription());
+        assertEquals(1, operationCount("withdraw", "ok"));
+        assertEquals(200.0, meterRegistry.get("bank.operation.amount").tag("operation", "withdraw").counter().count());
     }
 
 
@@ -107,32 +99,31 @@ public class TransactionServiceTest {
 
     @Test
     void shouldThrowIfWithdrawExceedsBalance() {
+        ReflectionTestUtils.setField(transactionService, "lockMode", BalanceLockMode.PESSIMISTIC);
         when(authService.getCurrentUser()).thenReturn(user);
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
-
-        when(limitRepository.findByName("daily_limit"))
-                .thenReturn(new Limit("daily_limit", BigDecimal.valueOf(10_000)));
-
-        when(transactionRepository.sumWithdrawalsByCardAndDateRange(any(), any(), any()))
-                .thenReturn(Optional.of(BigDecimal.ZERO));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
 
         card.setBalance(BigDecimal.valueOf(100));
 
         assertThrows(IllegalArgumentException.class, () ->
                 transactionService.withdraw(10L, BigDecimal.valueOf(500), "Too much"));
+        assertEquals(1, operationCount("withdraw", "insufficient_balance"));
+        assertNull(meterRegistry.find("bank.operation.amount").counter());
     }
 
 
     @Test
     void shouldThrowIfWithdrawExceedsLimit() {
+        ReflectionTestUtils.setField(transactionService, "lockMode", BalanceLockMode.PESSIMISTIC);
         when(authService.getCurrentUser()).thenReturn(user);
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
-        when(limitRepository.findByName("daily_limit")).thenReturn(limit);
-        when(transactionRepository.sumWithdrawalsByCardAndDateRange(any(), any(), any()))
-                .thenReturn(Optional.of(BigDecimal.valueOf(400)));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+        doThrow(new OperationRejectedException(OperationOutcome.LIMIT_EXCEEDED, "Daily withdrawal limit exceeded"))
+                .when(limitEvaluator)
+                .checkAndRecord(10L, 1L, TransactionType.WITHDRAW, BigDecimal.valueOf(200));
 
         assertThrows(IllegalArgumentException.class, () ->
                 transactionService.withdraw(10L, BigDecimal.valueOf(200), "ATM"));
+        assertEquals(1, operationCount("withdraw", "limit_exceeded"));
     }
 
     @Test
@@ -146,8 +137,8 @@ public class TransactionServiceTest {
         toCard.setBalance(BigDecimal.ZERO);
 
         when(authService.getCurrentUser()).thenReturn(user);
-        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
-        when(cardRepository.findById(11L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdForUpdate(11L)).thenReturn(Optional.of(toCard));
         when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         assertDoesNotThrow(() ->
@@ -155,6 +146,8 @@ public class TransactionServiceTest {
 
         assertEquals(BigDecimal.valueOf(700), card.getBalance());
         assertEquals(BigDecimal.valueOf(300), toCard.getBalance());
+        assertEquals(1, operationCount("transfer", "ok"));
+        assertEquals(300.0, meterRegistry.get("bank.operation.amount").tag("operation", "transfer").counter().count());
     }
 
     @Test
@@ -163,4 +156,155 @@ public class TransactionServiceTest {
         assertThrows(IllegalArgumentException.class, () ->
                 transactionService.transfer(10L, 10L, BigDecimal.valueOf(100), "Same card"));
     }
+
+    @Test
+    void shouldLockTransferCardsInIdOrder() {
+        Card toCard = new Card();
+        toCard.setId(11L);
+        toCard.setOwner(user);
+        toCard.setCardNumber("9999888877776666");
+        toCard.setStatus(CardStatus.ACTIVE);
+        toCard.setExpirationDate(LocalDate.now().plusYears(1));
+        toCard.setBalance(BigDecimal.valueOf(500));
+
+        when(authService.getCurrentUser()).thenReturn(user);
+        when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdForUpdate(11L)).thenReturn(Optional.of(toCard));
+        when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        transactionService.transfer(11L, 10L, BigDecimal.valueOf(200), "Reverse transfer");
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findByIdForUpdate(10L);
+        inOrder.verify(cardRepository).findByIdForUpdate(11L);
+        assertEquals(BigDecimal.valueOf(1200), card.getBalance());
+        assertEquals(BigDecimal.valueOf(300), toCard.getBalance());
+    }
+
+    @Test
+    void shouldRetryWithdrawOnOptimisticConflict() {
+        ReflectionTestUtils.setField(transactionService, "lockMode", BalanceLockMode.OPTIMISTIC);
+
+        when(authService.getCurrentUser()).thenReturn(user);
+        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+        doThrow(new OptimisticLockingFailureException("Card was updated concurrently"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        transactionService.withdraw(10L, BigDecimal.valueOf(100), "ATM");
+
+        verify(cardRepository, times(2)).findById(10L);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxOptimisticAttempts() {
+        ReflectionTestUtils.setField(transactionService, "lockMode", BalanceLockMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(transactionService, "optimisticMaxAttempts", 3);
+
+        when(authService.getCurrentUser()).thenReturn(user);
+        when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+        doThrow(new OptimisticLockingFailureException("Card was updated concurrently"))
+                .when(transactionManager).commit(any());
+
+        assertThrows(OptimisticLockingFailureException.class, () ->
+                transactionService.withdraw(10L, BigDecimal.valueOf(100), "ATM"));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void shouldWithdrawAtomicallyWithoutLoadingCard() {
+        when(authService.getCurrentUser()).thenReturn(user);
+        CardOperationView view = cardView();
+        when(cardRepository.findOperationViewById(10L)).thenReturn(Optional.of(view));
+        when(cardRepository.debitIfSufficient(10L, BigDecimal.valueOf(200))).thenReturn(1);
+        when(cardRepository.getReferenceById(10L)).thenReturn(card);
+
+        WithdrawResponseDto response = transactionService.withdraw(10L, BigDecimal.valueOf(200), "ATM");
+
+        assertEquals("1111222233334444", response.getCardNumber());
+        assertEquals(TransactionType.WITHDRAW, response.getType());
+        assertEquals(BigDecimal.valueOf(200), response.getAmount());
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any());
+        verify(transactionRepository).save(any(Transaction.class));
+    }
+
+    @Test
+    void shouldRejectAtomicWithdrawWhenDebitAffectsNoRows() {
+        when(authService.getCurrentUser()).thenReturn(user);
+        CardOperationView view = cardView();
+        when(cardRepository.findOperationViewById(10L)).thenReturn(Optional.of(view));
+        when(cardRepository.debitIfSufficient(10L, BigDecimal.valueOf(5000))).thenReturn(0);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                transactionService.withdraw(10L, BigDecimal.valueOf(5000), "Too much"));
+
+        assertEquals("Insufficient balance", ex.getMessage());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldRejectAtomicWithdrawOverDailyLimit() {
+        when(authService.getCurrentUser()).thenReturn(user);
+        CardOperationView view = cardView();
+        when(cardRepository.findOperationViewById(10L)).thenReturn(Optional.of(view));
+        doThrow(new OperationRejectedException(OperationOutcome.LIMIT_EXCEEDED, "Daily withdrawal limit exceeded"))
+                .when(limitEvaluator)
+                .checkAndRecord(10L, 1L, TransactionType.WITHDRAW, BigDecimal.valueOf(200));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.withdraw(10L, BigDecimal.valueOf(200), "ATM"));
+        verify(cardRepository, never()).debitIfSufficient(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @ParameterizedTest
+    @EnumSource(BalanceLockMode.class)
+    void shouldRejectCardInExpiredStatusInEveryMode(BalanceLockMode mode) {
+        ReflectionTestUtils.setField(transactionService, "lockMode", mode);
+        when(authService.getCurrentUser()).thenReturn(user);
+        card.setStatus(CardStatus.EXPIRED);
+        switch (mode) {
+            case ATOMIC -> {
+                CardOperationView view = cardView();
+                when(view.getStatus()).thenReturn(CardStatus.EXPIRED);
+                when(cardRepository.findOperationViewById(10L)).thenReturn(Optional.of(view));
+            }
+            case PESSIMISTIC -> when(cardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+            case OPTIMISTIC -> when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+        }
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
+                transactionService.withdraw(10L, BigDecimal.valueOf(100), "ATM"));
+
+        assertEquals("Card is expired", ex.getMessage());
+        assertEquals(1, operationCount("withdraw", "expired"));
+        verify(cardRepository, never()).debitIfSufficient(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldTagOutcomeFromExceptionRatherThanMessage() {
+        assertEquals(OperationOutcome.LIMIT_EXCEEDED,
+                OperationOutcome.of(new OperationRejectedException(OperationOutcome.LIMIT_EXCEEDED, "Over the cap")));
+        assertEquals(OperationOutcome.BLOCKED,
+                OperationOutcome.of(new CardStateException(OperationOutcome.BLOCKED, "Card is frozen")));
+        assertEquals(OperationOutcome.INVALID,
+                OperationOutcome.of(new IllegalArgumentException("Insufficient balance")));
+        assertEquals(OperationOutcome.ERROR, OperationOutcome.of(new IllegalStateException("Card is blocked")));
+    }
+
+    private CardOperationView cardView() {
+        CardOperationView view = mock(CardOperationView.class);
+        when(view.getOwnerId()).thenReturn(user.getId());
+        when(view.getStatus()).thenReturn(CardStatus.ACTIVE);
+        when(view.getExpirationDate()).thenReturn(card.getExpirationDate());
+        lenient().when(view.getCardNumber()).thenReturn(CardNumber.of(card.getCardNumber()));
+        return view;
+    }
+
+    private long operationCount(String operation, String outcome) {
+        return meterRegistry.get("bank.operation").tags("operation", operation, "outcome", outcome).timer().count();
+    }
 }
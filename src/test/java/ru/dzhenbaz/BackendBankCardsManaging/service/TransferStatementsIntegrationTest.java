@@ -0,0 +1,129 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет количество SQL-запросов на перевод: записи перевода должны отправляться пакетами.
+ * Замер пропускной способности переводов помечен тегом performance и выполняется только в профиле performance.
+ */
+@SpringBootTest
+public class TransferStatementsIntegrationTest {
+
+    private static final int TRANSFERS = 500;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long fromCardId;
+    private Long toCardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        User user = new User();
+        user.setEmail("statements@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+
+        fromCardId = createCard(user, "1000200030004000", BigDecimal.valueOf(1_000_000));
+        toCardId = createCard(user, "5000600070008000", BigDecimal.ZERO);
+
+        ClientDetails principal = new ClientDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        if (statistics != null) {
+            statistics.setStatisticsEnabled(false);
+        }
+        SecurityContextHolder.clearContext();
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void singleTransfersUseBatchedWrites() {
+        // Прогрев: первый перевод подготавливает запросы и выделяет первый блок идентификаторов
+        transactionService.transfer(fromCardId, toCardId, AMOUNT, "Warmup");
+
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        for (int i = 0; i < TRANSFERS; i++) {
+            transactionService.transfer(fromCardId, toCardId, AMOUNT, "Statements");
+        }
+
+        double statementsPerTransfer = (double) statistics.getPrepareStatementCount() / TRANSFERS;
+
+        assertEquals(2L * (TRANSFERS + 1), transactionRepository.count());
+        // Две блокировки карт, учёт суммы в дневном агрегате, один пакет UPDATE карт и один пакет INSERT журнала
+        assertTrue(statementsPerTransfer <= 5.1, "Statements per transfer: " + statementsPerTransfer);
+    }
+
+    @Test
+    @Tag("performance")
+    void singleTransfersThroughput() {
+        // Прогрев: подготовка запросов и JIT не входят в замер
+        for (int i = 0; i < TRANSFERS / 10; i++) {
+            transactionService.transfer(fromCardId, toCardId, AMOUNT, "Warmup");
+        }
+
+        // Пропускная способность замеряется без сбора статистики: Hibernate пишет её в журнал после каждой сессии
+        statistics.setStatisticsEnabled(false);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            transactionService.transfer(fromCardId, toCardId, AMOUNT, "Throughput");
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        System.out.printf("Single transfers: %d in %d ms, %.0f transfers/sec%n", TRANSFERS,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), TRANSFERS * 1e9 / elapsedNanos);
+        assertEquals(2L * (TRANSFERS + TRANSFERS / 10), transactionRepository.count());
+    }
+
+    private Long createCard(User owner, String number, BigDecimal balance) {
+        Card card = new Card();
+        card.setOwner(owner);
+        card.setCardNumber(number);
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        cardRepository.save(card);
+        return card.getId();
+    }
+}
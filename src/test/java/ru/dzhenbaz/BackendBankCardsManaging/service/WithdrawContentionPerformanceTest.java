@@ -0,0 +1,222 @@
+package ru.dzhenbaz.BackendBankCardsManaging.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Card;
+import ru.dzhenbaz.BackendBankCardsManaging.model.Limit;
+import ru.dzhenbaz.BackendBankCardsManaging.model.User;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.BalanceLockMode;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.CardStatus;
+import ru.dzhenbaz.BackendBankCardsManaging.model.enums.Role;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.CardRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.LimitRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.TransactionRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.repository.UserRepository;
+import ru.dzhenbaz.BackendBankCardsManaging.security.ClientDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочное сравнение режимов блокировки баланса при тысячах параллельных снятий с одной "горячей" карты.
+ * Для каждого режима выводит пропускную способность и количество неразрешённых конфликтов.
+ * Отдельно сравнивает условный UPDATE режима ATOMIC с режимами, загружающими сущность карты:
+ * выводит количество SQL-запросов и время одного снятия без конкуренции.
+ * Тест помечен тегом performance и выполняется только в профиле performance.
+ */
+@Tag("performance")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+public class WithdrawContentionPerformanceTest {
+
+    private static final int THREADS = 32;
+    private static final int WITHDRAWALS = 5_000;
+    private static final int SEQUENTIAL_WITHDRAWALS = 1_000;
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(10);
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CardRepository cardRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private LimitRepository limitRepository;
+    @Autowired private LimitRegistry limitRegistry;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Long cardId;
+
+    @BeforeEach
+    void setup() {
+        cleanDb();
+
+        user = new User();
+        user.setEmail("contention@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        userRepository.save(user);
+
+        Card card = new Card();
+        card.setOwner(user);
+        card.setCardNumber("4444555566667777");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(INITIAL_BALANCE);
+        cardRepository.save(card);
+        cardId = card.getId();
+
+        Limit limit = limitRepository.findByName("daily_limit");
+        limit.setLimitValue(INITIAL_BALANCE);
+        limitRepository.save(limit);
+        limitRegistry.refresh();
+    }
+
+    @AfterEach
+    void cleanDb() {
+        transactionRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BalanceLockMode.class)
+    void throughputOfParallelWithdrawals(BalanceLockMode mode) throws Exception {
+        TransactionService target = AopTestUtils.getUltimateTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "lockMode", mode);
+        ReflectionTestUtils.setField(target, "optimisticMaxAttempts", 50);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        long elapsedNanos;
+        try {
+            // Прогрев: подготовка запросов и JIT не входят в замер
+            withdrawInParallel(THREADS * 10, succeeded, conflicts);
+            succeeded.set(0);
+            conflicts.set(0);
+
+            long startedAt = System.nanoTime();
+            withdrawInParallel(WITHDRAWALS, succeeded, conflicts);
+            elapsedNanos = System.nanoTime() - startedAt;
+        } finally {
+            ReflectionTestUtils.setField(target, "lockMode", BalanceLockMode.ATOMIC);
+            ReflectionTestUtils.setField(target, "optimisticMaxAttempts", 5);
+        }
+
+        System.out.printf("%s: %d withdrawals on %d threads (%d unresolved conflicts) in %d ms, %.0f ops/sec%n",
+                mode, succeeded.get(), THREADS, conflicts.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                succeeded.get() * 1e9 / elapsedNanos);
+
+        assertEquals(WITHDRAWALS, succeeded.get() + conflicts.get());
+        if (mode != BalanceLockMode.OPTIMISTIC) {
+            assertEquals(0, conflicts.get());
+        }
+    }
+
+    @Test
+    void atomicDebitComparedWithEntityLocking() {
+        TransactionService target = AopTestUtils.getUltimateTargetObject(transactionService);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        ClientDetails principal = new ClientDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        Map<BalanceLockMode, Double> statements = new EnumMap<>(BalanceLockMode.class);
+        Map<BalanceLockMode, Double> millis = new EnumMap<>(BalanceLockMode.class);
+        try {
+            // Прогрев всех режимов до замеров, чтобы первый режим не нёс стоимость JIT
+            for (BalanceLockMode mode : BalanceLockMode.values()) {
+                ReflectionTestUtils.setField(target, "lockMode", mode);
+                withdrawSequentially(SEQUENTIAL_WITHDRAWALS / 5);
+            }
+
+            for (BalanceLockMode mode : BalanceLockMode.values()) {
+                ReflectionTestUtils.setField(target, "lockMode", mode);
+                BigDecimal balanceBefore = cardRepository.findById(cardId).orElseThrow().getBalance();
+                statistics.setStatisticsEnabled(true);
+                statistics.clear();
+                long startedAt = System.nanoTime();
+                withdrawSequentially(SEQUENTIAL_WITHDRAWALS);
+                long elapsedNanos = System.nanoTime() - startedAt;
+                statements.put(mode, (double) statistics.getPrepareStatementCount() / SEQUENTIAL_WITHDRAWALS);
+                millis.put(mode, elapsedNanos / 1e6 / SEQUENTIAL_WITHDRAWALS);
+                statistics.setStatisticsEnabled(false);
+
+                BigDecimal debited = AMOUNT.multiply(BigDecimal.valueOf(SEQUENTIAL_WITHDRAWALS));
+                assertEquals(0, balanceBefore.subtract(debited)
+                        .compareTo(cardRepository.findById(cardId).orElseThrow().getBalance()));
+            }
+        } finally {
+            statistics.setStatisticsEnabled(false);
+            SecurityContextHolder.clearContext();
+            ReflectionTestUtils.setField(target, "lockMode", BalanceLockMode.ATOMIC);
+        }
+
+        for (BalanceLockMode mode : BalanceLockMode.values()) {
+            System.out.printf("%s: %.1f statements and %.3f ms per withdrawal (%.2fx of ATOMIC)%n", mode,
+                    statements.get(mode), millis.get(mode), millis.get(mode) / millis.get(BalanceLockMode.ATOMIC));
+        }
+    }
+
+    private void withdrawSequentially(int withdrawals) {
+        for (int i = 0; i < withdrawals; i++) {
+            transactionService.withdraw(cardId, AMOUNT, "Sequential");
+        }
+    }
+
+    private void withdrawInParallel(int withdrawals, AtomicInteger succeeded, AtomicInteger conflicts)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < withdrawals; i++) {
+                futures.add(executor.submit(() -> {
+                    ClientDetails principal = new ClientDetails(user);
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+                    try {
+                        start.await();
+                        transactionService.withdraw(cardId, AMOUNT, "Contention");
+                        succeeded.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        conflicts.incrementAndGet();
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}